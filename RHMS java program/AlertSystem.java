@@ -12,6 +12,11 @@ import reminderservice.Reminder;
 import smsnotifier.SmsNotification;
 import videoconsultation.VideoCall;
 import exceptionhandler.RpmsException;
+import logging.AsyncLogHandler;
+import metrics.Metrics;
+import templates.TemplateCatalog;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.logging.Logger;
 
 /**
@@ -27,7 +32,23 @@ public class AlertSystem {
         final String hospitalEmergencyEmail = System.getenv("HOSPITAL_EMERGENCY_EMAIL");
         final String hospitalEmergencyNumber = System.getenv("HOSPITAL_EMERGENCY_NUMBER");
 
+        // Write logs from a background thread so alerting and chat never wait on console I/O
+        AsyncLogHandler.install(8192);
+
         try {
+            // Publish metrics over JMX, and to a file every 10 seconds if one is configured
+            Metrics.registerMBean();
+            String metricsFile = System.getenv("METRICS_FILE");
+            if (metricsFile != null) {
+                Metrics.startDump(Paths.get(metricsFile), 10_000);
+            }
+
+            // Use translated alert and reminder texts if a directory of them is configured
+            String templatesDir = System.getenv("TEMPLATES_DIR");
+            if (templatesDir != null) {
+                TemplateCatalog.install(TemplateCatalog.load(Paths.get(templatesDir), Locale.getDefault()));
+            }
+
             // Set up notifications
             Notifiable emailNotification = new EmailNotification(
                 System.getenv("EMAIL_USERNAME"),
@@ -0,0 +1,73 @@
+package chatserver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary framing shared by the network chat server and client.
+ * A frame is a 4-byte big-endian body length, a 1-byte type, then zero or more strings,
+ * each written as a 2-byte length and its UTF-8 bytes.
+ */
+public final class ChatFrame {
+    public static final byte OPEN = 1;
+    public static final byte SEND = 2;
+    public static final byte CLOSE = 3;
+    public static final byte TRANSCRIPT = 4;
+    public static final byte OK = 16;
+    public static final byte ERROR = 17;
+    public static final byte MESSAGES = 18;
+
+    public static final int HEADER_BYTES = 4;
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+    public static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private ChatFrame() {
+    }
+
+    /**
+     * Encodes a frame ready to be written to a channel.
+     * @param type Frame type.
+     * @param fields String fields, in order.
+     * @return Buffer positioned at the start of the frame.
+     * @throws IllegalArgumentException If a field or the whole frame is too long.
+     */
+    public static ByteBuffer encode(byte type, String... fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int bodyLength = 1;
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+            if (encoded[i].length > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("Field too long: " + encoded[i].length + " bytes");
+            }
+            bodyLength += 2 + encoded[i].length;
+        }
+        if (bodyLength > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Frame too long: " + bodyLength + " bytes");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        frame.putInt(bodyLength).put(type);
+        for (byte[] field : encoded) {
+            frame.putShort((short) field.length).put(field);
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Reads the next string field from a frame body.
+     * @param body Frame body positioned at a string field.
+     * @return The decoded string.
+     * @throws IllegalArgumentException If the field runs past the end of the body.
+     */
+    public static String readString(ByteBuffer body) {
+        if (body.remaining() < 2) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+        int length = body.getShort() & 0xFFFF;
+        if (body.remaining() < length) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+}
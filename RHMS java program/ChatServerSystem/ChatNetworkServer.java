@@ -0,0 +1,469 @@
+package chatserver;
+
+import exceptionhandler.RpmsErrorHandling;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exposes a {@link ChatServer} over TCP using non-blocking NIO and {@link ChatFrame} framing.
+ * One thread accepts connections and hands them round-robin to a fixed set of selector threads,
+ * so each connection costs only its channel, a small read buffer and its pending writes. A read
+ * buffer grown for a large frame is shrunk again once that frame is processed.
+ * Every request frame gets exactly one response ({@code OK} or {@code ERROR}), in request order;
+ * a transcript request is answered with one {@code MESSAGES} frame per message followed by
+ * {@code OK}.
+ * <p>
+ * Selector threads never wait for the transcript log: a request's reply is held in its slot
+ * until the write's future completes, which hands the connection back to its selector thread.
+ * Transcripts are streamed from the log as the peer reads them, so neither a slow reader nor a
+ * long transcript holds more than {@code MAX_PENDING_WRITES} frames in memory.
+ */
+public class ChatNetworkServer implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ChatNetworkServer.class.getName());
+    private static final int INITIAL_READ_BYTES = 512;
+    private static final int MAX_PENDING_WRITES = 1024;
+    private static final long ACCEPT_BACKOFF_MILLIS = 50;
+
+    private final ChatServer chatServer;
+    private final ServerSocketChannel serverChannel;
+    private final Selector acceptSelector;
+    private final Worker[] workers;
+    private final Thread acceptThread;
+    private int nextWorker;
+    private volatile boolean running;
+
+    /**
+     * Binds the server socket. Call {@link #start()} to begin accepting connections.
+     * @param chatServer The chat server to route messages to.
+     * @param address Address to bind (port 0 picks a free port).
+     * @param selectorThreads Number of selector threads serving connections.
+     * @throws IOException If the socket cannot be bound.
+     * @throws IllegalArgumentException If chatServer is null or selectorThreads is not positive.
+     */
+    public ChatNetworkServer(ChatServer chatServer, InetSocketAddress address, int selectorThreads) throws IOException {
+        if (chatServer == null) {
+            throw new IllegalArgumentException("ChatServer cannot be null");
+        }
+        if (selectorThreads <= 0) {
+            throw new IllegalArgumentException("Selector threads must be positive");
+        }
+        this.chatServer = chatServer;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 4096);
+        serverChannel.configureBlocking(false);
+        this.acceptSelector = Selector.open();
+        serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        this.workers = new Worker[selectorThreads];
+        for (int i = 0; i < selectorThreads; i++) {
+            workers[i] = new Worker(i);
+        }
+        this.acceptThread = new Thread(this::acceptLoop, "chat-accept");
+    }
+
+    /**
+     * Starts the accept and selector threads.
+     */
+    public void start() {
+        running = true;
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        acceptThread.start();
+        LOGGER.log(Level.INFO, "Chat network server listening on port {0}", getPort());
+    }
+
+    /**
+     * Returns the bound port.
+     * @return Local port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting, closes every connection and waits for the threads to exit.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        acceptSelector.wakeup();
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        try {
+            acceptThread.join();
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serverChannel.close();
+        acceptSelector.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    try {
+                        channel.configureBlocking(false);
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.FINE, "Dropping connection that failed setup: {0}", e.getMessage());
+                        closeQuietly(channel);
+                        continue;
+                    }
+                    workers[nextWorker].add(channel);
+                    nextWorker = (nextWorker + 1) % workers.length;
+                }
+            } catch (ClosedSelectorException | ClosedChannelException e) {
+                if (running) {
+                    LOGGER.log(Level.SEVERE, "Accept loop stopped: {0}", e.toString());
+                }
+                return;
+            } catch (IOException e) {
+                // Typically out of file descriptors; the connection waits in the backlog, so
+                // accepting again at once would only spin until some are freed
+                LOGGER.log(Level.WARNING, "Accept failed, retrying in {0} ms: {1}",
+                    new Object[] {ACCEPT_BACKOFF_MILLIS, e.getMessage()});
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing chat connection: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Per-connection buffers. Touched only by the connection's selector thread.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(INITIAL_READ_BYTES);
+        final Queue<ByteBuffer> out = new ArrayDeque<>();
+        // Replies not yet moved to out, in request order
+        final Queue<Reply> replies = new ArrayDeque<>();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * The response to one request, filled in when the request has finished.
+     */
+    private static class Reply {
+        private volatile ByteBuffer frame;
+
+        void complete(ByteBuffer frame) {
+            this.frame = frame;
+        }
+
+        /**
+         * Moves as much of the reply as fits to the pending writes.
+         * @param out Pending writes.
+         * @return True if the whole reply has been moved.
+         */
+        boolean drainTo(Queue<ByteBuffer> out) {
+            ByteBuffer ready = frame;
+            if (ready == null) {
+                return false;
+            }
+            out.add(ready);
+            return true;
+        }
+    }
+
+    /**
+     * A transcript being streamed, read from its view only as the pending writes drain.
+     */
+    private static final class TranscriptReply extends Reply {
+        private final List<String> messages;
+        private int next;
+
+        TranscriptReply(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        boolean drainTo(Queue<ByteBuffer> out) {
+            while (next < messages.size()) {
+                if (out.size() >= MAX_PENDING_WRITES) {
+                    return false;
+                }
+                String message;
+                try {
+                    message = messages.get(next++);
+                } catch (IllegalStateException e) {
+                    // Its segment expired while streaming; skipped, as forEachMessage does
+                    continue;
+                }
+                out.add(ChatFrame.encode(ChatFrame.MESSAGES, message));
+            }
+            out.add(ChatFrame.encode(ChatFrame.OK));
+            return true;
+        }
+    }
+
+    /**
+     * A selector thread that owns a subset of the connections.
+     */
+    private final class Worker {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        // Connections with a reply completed by another thread
+        final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+        Worker(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::run, "chat-selector-" + index);
+        }
+
+        void add(SocketChannel channel) {
+            incoming.add(channel);
+            selector.wakeup();
+        }
+
+        void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = incoming.poll()) != null) {
+                        Connection connection = new Connection(channel);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    Connection ready;
+                    while ((ready = completed.poll()) != null) {
+                        resume(ready);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Selector loop failed: {0}", e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Error closing selector: {0}", e.getMessage());
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable() && !read(connection)) {
+                    closeQuietly(key);
+                    return;
+                }
+                if (key.isValid()) {
+                    flush(key, connection);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.log(Level.FINE, "Closing chat connection: {0}", e.getMessage());
+                closeQuietly(key);
+            } catch (RuntimeException e) {
+                // A bug hit by one connection must not stop the thread serving all the others
+                LOGGER.log(Level.WARNING, "Closing chat connection after unexpected error", e);
+                closeQuietly(key);
+            }
+        }
+
+        /**
+         * Sends the replies of a connection whose pending writes completed on another thread.
+         */
+        private void resume(Connection connection) {
+            SelectionKey key = connection.key;
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                flush(key, connection);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Closing chat connection: {0}", e.getMessage());
+                closeQuietly(key);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Closing chat connection after unexpected error", e);
+                closeQuietly(key);
+            }
+        }
+
+        /**
+         * Reads what is available and processes every complete frame.
+         * @return False if the peer closed the connection.
+         */
+        private boolean read(Connection connection) throws IOException {
+            if (connection.channel.read(connection.in) < 0) {
+                return false;
+            }
+            ByteBuffer in = connection.in.flip();
+            int needed = 0;
+            while (in.remaining() >= ChatFrame.HEADER_BYTES) {
+                int bodyLength = in.getInt(in.position());
+                if (bodyLength <= 0 || bodyLength > ChatFrame.MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Bad frame length " + bodyLength);
+                }
+                if (in.remaining() < ChatFrame.HEADER_BYTES + bodyLength) {
+                    needed = ChatFrame.HEADER_BYTES + bodyLength;
+                    break;
+                }
+                int bodyStart = in.position() + ChatFrame.HEADER_BYTES;
+                process(connection, in.slice(bodyStart, bodyLength));
+                in.position(bodyStart + bodyLength);
+            }
+            in.compact();
+            if (needed > in.capacity()) {
+                // Grow only for the frame in progress; most frames fit the initial buffer
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                larger.put(in.flip());
+                connection.in = larger;
+            } else if (in.capacity() > INITIAL_READ_BYTES && needed <= INITIAL_READ_BYTES
+                    && in.position() <= INITIAL_READ_BYTES) {
+                // Shrink back once the large frame is processed, so an idle connection stays small
+                ByteBuffer smaller = ByteBuffer.allocate(INITIAL_READ_BYTES);
+                smaller.put(in.flip());
+                connection.in = smaller;
+            }
+            return true;
+        }
+
+        private void process(Connection connection, ByteBuffer body) {
+            byte type = body.get();
+            try {
+                switch (type) {
+                    case ChatFrame.OPEN:
+                        reply(connection, chatServer.openRoomAsync(ChatFrame.readString(body)));
+                        break;
+                    case ChatFrame.SEND:
+                        reply(connection, chatServer.routeMessageAsync(ChatFrame.readString(body),
+                            ChatFrame.readString(body), ChatFrame.readString(body)));
+                        break;
+                    case ChatFrame.CLOSE:
+                        reply(connection, chatServer.closeRoomAsync(ChatFrame.readString(body)));
+                        break;
+                    case ChatFrame.TRANSCRIPT:
+                        connection.replies.add(new TranscriptReply(chatServer.getRoomTranscript(ChatFrame.readString(body))));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown frame type " + type);
+                }
+            } catch (RpmsErrorHandling e) {
+                Reply reply = new Reply();
+                reply.complete(ChatFrame.encode(ChatFrame.ERROR, e.getMessage()));
+                connection.replies.add(reply);
+            }
+        }
+
+        /**
+         * Queues the reply to a request that finishes when its write does.
+         * @param connection Connection the request came from.
+         * @param write The request's pending write.
+         */
+        private void reply(Connection connection, CompletableFuture<Void> write) {
+            Reply reply = new Reply();
+            connection.replies.add(reply);
+            if (write.isDone()) {
+                reply.complete(outcome(write));
+                return;
+            }
+            write.whenComplete((ok, error) -> {
+                reply.complete(outcome(write));
+                completed.add(connection);
+                selector.wakeup();
+            });
+        }
+
+        private ByteBuffer outcome(CompletableFuture<Void> write) {
+            if (!write.isCompletedExceptionally()) {
+                return ChatFrame.encode(ChatFrame.OK);
+            }
+            return ChatFrame.encode(ChatFrame.ERROR, write.handle((ok, error) -> ChatServer.persistError(error).getMessage()).join());
+        }
+
+        /**
+         * Moves finished replies to the pending writes and writes as much as the socket takes.
+         * Reading is paused while too many writes or replies are pending.
+         */
+        private void flush(SelectionKey key, Connection connection) throws IOException {
+            boolean written;
+            do {
+                Reply reply;
+                while ((reply = connection.replies.peek()) != null && reply.drainTo(connection.out)) {
+                    connection.replies.poll();
+                }
+                written = write(connection);
+                // A transcript waiting for room is continued as soon as its frames are written
+            } while (written && connection.replies.peek() instanceof TranscriptReply);
+            int ops = connection.out.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (connection.out.size() < MAX_PENDING_WRITES && connection.replies.size() < MAX_PENDING_WRITES) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Writes pending frames until the socket is full.
+         * @return True if every pending frame was written.
+         */
+        private boolean write(Connection connection) throws IOException {
+            ByteBuffer head;
+            while ((head = connection.out.peek()) != null) {
+                connection.channel.write(head);
+                if (head.hasRemaining()) {
+                    return false;
+                }
+                connection.out.poll();
+            }
+            return true;
+        }
+
+        private void closeQuietly(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error closing chat connection: {0}", e.getMessage());
+            }
+        }
+    }
+}
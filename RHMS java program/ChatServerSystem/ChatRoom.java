@@ -0,0 +1,181 @@
+package chatserver;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * One chat session's transcript, appended to without locks.
+ * Senders claim a slot with a single atomic increment and write into chunked arrays,
+ * so concurrent messages to the same room never block each other and readers never copy.
+ * <p>
+ * Senders are admitted with {@link #enter()}, which fails once the room is closed or while it is
+ * still being opened. Closing waits for the senders already admitted to leave, so no message
+ * lands after the one that ends the session.
+ */
+class ChatRoom {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << 12;
+    static final int CAPACITY = CHUNK_SIZE * MAX_CHUNKS;
+    // Flags on the admitted-sender count
+    private static final int CLOSED = 1 << 30;
+    private static final int OPENING = 1 << 29;
+    private static final int SENDERS = OPENING - 1;
+
+    private final String sessionId;
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> chunks =
+        new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger senders = new AtomicInteger(OPENING);
+
+    /**
+     * Creates an empty room that counts as active but admits no senders until {@link #open()}.
+     * @param sessionId The session identifier.
+     */
+    ChatRoom(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    boolean isActive() {
+        return (senders.get() & CLOSED) == 0;
+    }
+
+    /**
+     * Starts admitting senders.
+     */
+    void open() {
+        senders.getAndAdd(-OPENING);
+    }
+
+    /**
+     * Admits a sender. Every admitted sender must call {@link #exit()} when done.
+     * @return True if admitted, false if the room is closed or not open yet.
+     */
+    boolean enter() {
+        int current;
+        do {
+            current = senders.get();
+            if ((current & (CLOSED | OPENING)) != 0) {
+                return false;
+            }
+        } while (!senders.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void exit() {
+        senders.decrementAndGet();
+    }
+
+    /**
+     * Marks the room as ended and waits for the admitted senders, and an open in progress, to
+     * finish.
+     * @return True if this call ended it, false if it was already ended.
+     */
+    boolean close() {
+        int current;
+        do {
+            current = senders.get();
+            if ((current & CLOSED) != 0) {
+                return false;
+            }
+        } while (!senders.compareAndSet(current, current | CLOSED));
+        // Admitted senders and an opening room only append or queue a write, so the wait is short
+        while ((senders.get() & (SENDERS | OPENING)) != 0) {
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    /**
+     * Appends a message to the transcript.
+     * @param message The formatted message.
+     * @return True if appended, false if the room is full.
+     */
+    boolean append(String message) {
+        int slot;
+        do {
+            slot = claimed.get();
+            if (slot >= CAPACITY) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(slot, slot + 1));
+        chunkFor(slot >>> CHUNK_BITS).set(slot & CHUNK_MASK, message);
+        return true;
+    }
+
+    /**
+     * Returns the number of messages appended so far.
+     * @return Message count.
+     */
+    int size() {
+        return claimed.get();
+    }
+
+    /**
+     * Returns the message at an index, waiting briefly if its sender is still publishing it.
+     * @param index Message index below {@link #size()}.
+     * @return The message.
+     */
+    String get(int index) {
+        AtomicReferenceArray<String> chunk;
+        while ((chunk = chunks.get(index >>> CHUNK_BITS)) == null) {
+            Thread.onSpinWait();
+        }
+        String message;
+        while ((message = chunk.get(index & CHUNK_MASK)) == null) {
+            Thread.onSpinWait();
+        }
+        return message;
+    }
+
+    /**
+     * Returns a read-only view of the messages appended so far. Later appends are not visible
+     * through the view, and creating it does not copy the transcript.
+     * @return Transcript view.
+     */
+    List<String> snapshot() {
+        final int size = size();
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return ChatRoom.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Passes each message appended so far to an action, in order.
+     * @param action Action to run per message.
+     */
+    void forEach(Consumer<String> action) {
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    private AtomicReferenceArray<String> chunkFor(int index) {
+        AtomicReferenceArray<String> chunk = chunks.get(index);
+        if (chunk == null) {
+            AtomicReferenceArray<String> created = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+}
@@ -1,31 +1,124 @@
-package ChatServerSystem;
+package chatserver;
 
-import ExceptionHandler.RpmsErrorHandling;
-import java.util.ArrayList;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsErrorHandling;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 
+/**
+ * Routes chat messages for any number of concurrent sessions ("rooms").
+ * Rooms are keyed by session id and striped across shards; appends to a room are lock-free.
+ * The no-argument session methods operate on a single default room.
+ * With a {@link TranscriptLog}, transcripts are persisted and read back from disk instead of
+ * being held in memory. The {@code Async} methods return as soon as the write is queued, so a
+ * caller such as a selector thread is never held up by the log's fsync.
+ */
 public class ChatServer {
     private static final Logger LOGGER = Logger.getLogger(ChatServer.class.getName());
-    private final List<String> chatHistory;
-    private boolean isActiveSession;
+    private static final String DEFAULT_SESSION = "default";
+    private static final int DEFAULT_SHARDS = 16;
+    private static final Counter ROUTED = Metrics.counter("chat.routed");
+    private static final LatencyHistogram ROUTE_LATENCY = Metrics.histogram("chat.route");
+    private final ConcurrentHashMap<String, ChatRoom>[] shards;
+    private final int shardMask;
+    private final TranscriptLog transcriptLog;
 
     public ChatServer() {
-        this.chatHistory = new ArrayList<>();
-        this.isActiveSession = false;
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * Creates a server with the given number of room shards.
+     * @param shardCount Number of shards, rounded up to a power of two.
+     * @throws IllegalArgumentException If shardCount is not positive.
+     */
+    public ChatServer(int shardCount) {
+        this(shardCount, null);
+    }
+
+    /**
+     * Creates a server whose transcripts are stored in a durable log.
+     * @param shardCount Number of shards, rounded up to a power of two.
+     * @param transcriptLog Log to persist transcripts to, or null to keep them in memory.
+     * @throws IllegalArgumentException If shardCount is not positive.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ChatServer(int shardCount, TranscriptLog transcriptLog) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        int size = Integer.highestOneBit(shardCount);
+        if (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shardMask = size - 1;
+        this.transcriptLog = transcriptLog;
     }
 
     /**
      * Starts a new chat session.
      * @throws RpmsErrorHandling If a session is already active.
      */
-    public synchronized void startSession() throws RpmsErrorHandling {
-        if (isActiveSession) {
-            throw new RpmsErrorHandling("Chat session already in progress!");
+    public void startSession() throws RpmsErrorHandling {
+        openRoom(DEFAULT_SESSION);
+    }
+
+    /**
+     * Opens a new room. A room that was closed earlier is replaced with an empty one.
+     * @param sessionId The session identifier.
+     * @throws RpmsErrorHandling If the id is invalid or the room is already active.
+     */
+    public void openRoom(String sessionId) throws RpmsErrorHandling {
+        awaitDurable(openRoomAsync(sessionId));
+    }
+
+    /**
+     * Opens a new room without waiting for the transcript log.
+     * @param sessionId The session identifier.
+     * @return Future completed once the room's fresh transcript is durable.
+     * @throws RpmsErrorHandling If the id is invalid or the room is already active.
+     */
+    public CompletableFuture<Void> openRoomAsync(String sessionId) throws RpmsErrorHandling {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Session id cannot be null or empty");
+        }
+        ConcurrentHashMap<String, ChatRoom> shard = shardFor(sessionId);
+        // Installed before the reset so a concurrent open fails, but admits no message until
+        // the reset and the opening message are queued
+        ChatRoom room = new ChatRoom(sessionId);
+        while (true) {
+            ChatRoom existing = shard.get(sessionId);
+            if (existing != null && existing.isActive()) {
+                throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, "Chat session already in progress!");
+            }
+            boolean installed = existing == null
+                ? shard.putIfAbsent(sessionId, room) == null
+                : shard.replace(sessionId, existing, room);
+            if (installed) {
+                break;
+            }
+        }
+        // The log writes in queue order, so the reset lands before every message of the room
+        try {
+            CompletableFuture<Void> reset = transcriptLog == null
+                ? CompletableFuture.completedFuture(null) : transcriptLog.reset(sessionId);
+            return CompletableFuture.allOf(reset, logSystemMessage(room, "Chat session started"));
+        } finally {
+            room.open();
         }
-        chatHistory.clear();
-        isActiveSession = true;
-        logSystemMessage("Chat session started");
     }
 
     /**
@@ -34,49 +127,213 @@ public class ChatServer {
      * @param message The message content.
      * @throws RpmsErrorHandling If no active session exists or inputs are invalid.
      */
-    public synchronized void routeMessage(String sender, String message) throws RpmsErrorHandling {
-        if (!isActiveSession) {
-            throw new RpmsErrorHandling("No active chat session!");
-        }
+    public void routeMessage(String sender, String message) throws RpmsErrorHandling {
+        routeMessage(DEFAULT_SESSION, sender, message);
+    }
+
+    /**
+     * Routes a message from a sender to a room.
+     * @param sessionId The session identifier.
+     * @param sender The sender's identifier.
+     * @param message The message content.
+     * @throws RpmsErrorHandling If the room is not active, is full, or inputs are invalid.
+     */
+    public void routeMessage(String sessionId, String sender, String message) throws RpmsErrorHandling {
+        awaitDurable(routeMessageAsync(sessionId, sender, message));
+    }
+
+    /**
+     * Routes a message from a sender to a room without waiting for the transcript log.
+     * @param sessionId The session identifier.
+     * @param sender The sender's identifier.
+     * @param message The message content.
+     * @return Future completed once the message is durable; fails if it could not be persisted.
+     * @throws RpmsErrorHandling If the room is not active, is full, or inputs are invalid.
+     */
+    public CompletableFuture<Void> routeMessageAsync(String sessionId, String sender, String message)
+            throws RpmsErrorHandling {
+        ChatRoom room = activeRoom(sessionId, "No active chat session!");
         if (sender == null || sender.trim().isEmpty()) {
-            throw new RpmsErrorHandling("Sender cannot be null or empty");
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Sender cannot be null or empty");
         }
         if (message == null || message.trim().isEmpty()) {
-            throw new RpmsErrorHandling("Message cannot be null or empty");
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message cannot be null or empty");
         }
+        long start = System.nanoTime();
         String formattedMessage = "[" + sender + "]:" + message;
-        chatHistory.add(formattedMessage);
-        LOGGER.info("Message routed: " + formattedMessage);
+        // Admission and append are one step against closeRoom, so nothing follows "Session ended"
+        if (!room.enter()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, "No active chat session!");
+        }
+        CompletableFuture<Void> write;
+        try {
+            if (transcriptLog != null) {
+                write = transcriptLog.append(sessionId, formattedMessage);
+            } else if (room.append(formattedMessage)) {
+                write = CompletableFuture.completedFuture(null);
+            } else {
+                throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, "Chat session is full");
+            }
+        } finally {
+            room.exit();
+        }
+        return write.whenComplete((ok, error) -> {
+            if (error == null) {
+                ROUTED.increment();
+                ROUTE_LATENCY.record(System.nanoTime() - start);
+                // Formatted and written by the log handlers, off this thread when logging is asynchronous
+                LOGGER.log(Level.INFO, "Message routed: {0}", formattedMessage);
+            }
+        });
     }
 
     /**
      * Ends the current chat session.
      * @throws RpmsErrorHandling If no session is active.
      */
-    public synchronized void endSession() throws RpmsErrorHandling {
-        if (!isActiveSession) {
-            throw new RpmsErrorHandling("Session is not active");
+    public void endSession() throws RpmsErrorHandling {
+        closeRoom(DEFAULT_SESSION);
+    }
+
+    /**
+     * Ends a room's session. Its transcript stays readable until the room is removed or reopened.
+     * @param sessionId The session identifier.
+     * @throws RpmsErrorHandling If the room is not active.
+     */
+    public void closeRoom(String sessionId) throws RpmsErrorHandling {
+        awaitDurable(closeRoomAsync(sessionId));
+    }
+
+    /**
+     * Ends a room's session without waiting for the transcript log.
+     * @param sessionId The session identifier.
+     * @return Future completed once the closing message is durable.
+     * @throws RpmsErrorHandling If the room is not active.
+     */
+    public CompletableFuture<Void> closeRoomAsync(String sessionId) throws RpmsErrorHandling {
+        ChatRoom room = activeRoom(sessionId, "Session is not active");
+        if (!room.close()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, "Session is not active");
         }
-        logSystemMessage("Session ended");
-        isActiveSession = false;
+        return logSystemMessage(room, "Session ended");
     }
 
     /**
-     * Returns a copy of the current session's transcript.
-     * @return A list of messages in the session.
+     * Drops a closed room and its transcript. The transcript is dropped once the reset is
+     * written; a failed reset is logged.
+     * @param sessionId The session identifier.
+     * @return True if a closed room was removed, false otherwise.
      */
-    public synchronized List<String> getSessionTranscript() {
-        return new ArrayList<>(chatHistory);
+    public boolean removeRoom(String sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        ConcurrentHashMap<String, ChatRoom> shard = shardFor(sessionId);
+        ChatRoom room = shard.get(sessionId);
+        if (room == null || room.isActive() || !shard.remove(sessionId, room)) {
+            return false;
+        }
+        if (transcriptLog != null) {
+            transcriptLog.reset(sessionId).whenComplete((ok, error) -> {
+                if (error != null) {
+                    LOGGER.log(Level.WARNING, "Failed to reset transcript of {0}: {1}",
+                        new Object[] {sessionId, error.getMessage()});
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current session's transcript.
+     * @return A read-only view of the messages in the session.
+     */
+    public List<String> getSessionTranscript() {
+        return getRoomTranscript(DEFAULT_SESSION);
+    }
+
+    /**
+     * Returns a room's transcript as a read-only view, without copying it.
+     * With a transcript log, this includes rooms recovered from disk after a restart.
+     * @param sessionId The session identifier.
+     * @return Messages appended so far, or an empty list for an unknown room.
+     */
+    public List<String> getRoomTranscript(String sessionId) {
+        if (sessionId == null) {
+            return Collections.emptyList();
+        }
+        if (transcriptLog != null) {
+            return transcriptLog.transcript(sessionId);
+        }
+        ChatRoom room = shardFor(sessionId).get(sessionId);
+        return room == null ? Collections.emptyList() : room.snapshot();
+    }
+
+    /**
+     * Passes each message in the current session's transcript to an action, in order.
+     * @param action Action to run per message.
+     */
+    public void forEachMessage(Consumer<String> action) {
+        forEachMessage(DEFAULT_SESSION, action);
+    }
+
+    /**
+     * Passes each message in a room's transcript to an action, in order.
+     * With a transcript log, messages are streamed from disk one at a time.
+     * @param sessionId The session identifier.
+     * @param action Action to run per message.
+     */
+    public void forEachMessage(String sessionId, Consumer<String> action) {
+        if (sessionId == null) {
+            return;
+        }
+        if (transcriptLog != null) {
+            transcriptLog.forEach(sessionId, action);
+            return;
+        }
+        ChatRoom room = shardFor(sessionId).get(sessionId);
+        if (room != null) {
+            room.forEach(action);
+        }
     }
 
     /**
      * Logs a system message to the chat history.
+     * @param room The room to log to.
      * @param message The system message to log.
+     * @return Future completed once the message is durable.
      */
-    private void logSystemMessage(String message) {
+    private CompletableFuture<Void> logSystemMessage(ChatRoom room, String message) {
         String systemMessage = "[System]:" + message;
-        chatHistory.add(systemMessage);
         LOGGER.info(systemMessage);
+        if (transcriptLog != null) {
+            return transcriptLog.append(room.getSessionId(), systemMessage);
+        }
+        room.append(systemMessage);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Waits for a transcript write to reach disk.
+     * @param write The pending write.
+     * @throws RpmsErrorHandling If the write failed.
+     */
+    private static void awaitDurable(CompletableFuture<Void> write) throws RpmsErrorHandling {
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            throw persistError(e);
+        }
+    }
+
+    /**
+     * Returns the error to report for a failed transcript write.
+     * @param error Failure of the write's future.
+     * @return Chat error naming the cause.
+     */
+    static RpmsErrorHandling persistError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return new RpmsErrorHandling("Failed to persist chat message: " + cause.getMessage());
     }
 
     /**
@@ -84,6 +341,29 @@ public class ChatServer {
      * @return True if a session is active, false otherwise.
      */
     public boolean isSessionActive() {
-        return isActiveSession;
+        return isRoomActive(DEFAULT_SESSION);
+    }
+
+    /**
+     * Checks if a room is active.
+     * @param sessionId The session identifier.
+     * @return True if the room exists and is active, false otherwise.
+     */
+    public boolean isRoomActive(String sessionId) {
+        ChatRoom room = sessionId == null ? null : shardFor(sessionId).get(sessionId);
+        return room != null && room.isActive();
+    }
+
+    private ChatRoom activeRoom(String sessionId, String error) throws RpmsErrorHandling {
+        ChatRoom room = sessionId == null ? null : shardFor(sessionId).get(sessionId);
+        if (room == null || !room.isActive()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, error);
+        }
+        return room;
+    }
+
+    private ConcurrentHashMap<String, ChatRoom> shardFor(String sessionId) {
+        int h = sessionId.hashCode();
+        return shards[(h ^ (h >>> 16)) & shardMask];
     }
-}
\ No newline at end of file
+}
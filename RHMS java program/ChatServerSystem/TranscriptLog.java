@@ -0,0 +1,496 @@
+package chatserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, segmented, append-only store for chat transcripts.
+ * <p>
+ * Appends are queued and written by one background thread, which fsyncs each batch once
+ * (group commit) before completing the callers' futures. The active segment is written through
+ * a memory map, and reads come straight from the mapped segments, so only an 8-byte position per
+ * message is kept on the heap. A session is dropped from the index when it is reset or its last
+ * message expires. If a batch fails, its records not yet fsynced are cut off the segment, so
+ * what readers and a later recovery see matches the futures that completed.
+ * <p>
+ * Record layout: {@code [int length][int crc32c][byte type][u16 session length][session][message]},
+ * where length and crc cover everything after the crc. A zero length marks the end of a segment.
+ * On open, each segment is scanned and a torn or corrupt tail is truncated.
+ */
+public class TranscriptLog implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(TranscriptLog.class.getName());
+    private static final byte MESSAGE = 1;
+    private static final byte RESET = 2;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_BATCH = 1024;
+    private static final String PREFIX = "transcript-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, PositionList> index = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private volatile boolean running = true;
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        volatile MappedByteBuffer map;
+        int size;
+
+        Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Positions of one session's messages, packed as segment id and offset.
+     * Slots are never overwritten, so readers can use a snapshot of the array without copying it.
+     */
+    private static final class PositionList {
+        long[] positions = new long[16];
+        int head;
+        int size;
+
+        synchronized void add(long position) {
+            if (size == positions.length) {
+                long[] grown = new long[Math.max(16, (size - head) * 2)];
+                System.arraycopy(positions, head, grown, 0, size - head);
+                size -= head;
+                head = 0;
+                positions = grown;
+            }
+            positions[size++] = position;
+        }
+
+        /**
+         * Drops the positions in segments before the given one.
+         * @return True if no positions are left.
+         */
+        synchronized boolean dropBefore(int segmentId) {
+            while (head < size && (int) (positions[head] >>> 32) < segmentId) {
+                head++;
+            }
+            return head == size;
+        }
+
+        synchronized long[] snapshot(int[] bounds) {
+            bounds[0] = head;
+            bounds[1] = size;
+            return positions;
+        }
+    }
+
+    /**
+     * An encoded record waiting for the writer thread.
+     */
+    private static final class Pending {
+        final String sessionId;
+        final byte type;
+        final byte[] record;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+        long position;
+
+        Pending(String sessionId, byte type, byte[] record) {
+            this.sessionId = sessionId;
+            this.type = type;
+            this.record = record;
+        }
+    }
+
+    /**
+     * Opens or creates a log in a directory, recovering any existing segments.
+     * @param directory Directory holding the segment files.
+     * @param segmentBytes Size at which a segment is sealed and a new one started.
+     * @param maxSegments Number of segments kept; the oldest are deleted beyond this.
+     * @throws IOException If the directory or segments cannot be read.
+     * @throws IllegalArgumentException If the sizes are invalid.
+     */
+    public TranscriptLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < 1024 || maxSegments < 1) {
+            throw new IllegalArgumentException("Segment size must be at least 1 KiB and at least one segment kept");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        recover();
+        this.writer = new Thread(this::runWriter, "transcript-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a message for a session.
+     * @param sessionId The session identifier.
+     * @param message The formatted message.
+     * @return Future completed once the message is fsynced and readable.
+     */
+    public CompletableFuture<Void> append(String sessionId, String message) {
+        return enqueue(sessionId, MESSAGE, message);
+    }
+
+    /**
+     * Starts a fresh transcript for a session; earlier messages stay on disk until retention
+     * removes their segment but are no longer returned for the session, which is no longer
+     * tracked until its next message.
+     * @param sessionId The session identifier.
+     * @return Future completed once the reset is durable.
+     */
+    public CompletableFuture<Void> reset(String sessionId) {
+        return enqueue(sessionId, RESET, "");
+    }
+
+    /**
+     * Returns a session's transcript as a read-only view. Messages are read from the mapped
+     * segments on access, and later appends are not visible through the view.
+     * @param sessionId The session identifier.
+     * @return Transcript view, empty for an unknown session.
+     */
+    public List<String> transcript(String sessionId) {
+        PositionList list = index.get(sessionId);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        int[] bounds = new int[2];
+        long[] positions = list.snapshot(bounds);
+        final int from = bounds[0];
+        final int size = bounds[1] - from;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+                }
+                String message = read(positions[from + i]);
+                if (message == null) {
+                    throw new IllegalStateException("Transcript segment expired");
+                }
+                return message;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Streams a session's messages from disk, skipping any whose segment has expired.
+     * @param sessionId The session identifier.
+     * @param action Action to run per message.
+     */
+    public void forEach(String sessionId, Consumer<String> action) {
+        PositionList list = index.get(sessionId);
+        if (list == null) {
+            return;
+        }
+        int[] bounds = new int[2];
+        long[] positions = list.snapshot(bounds);
+        for (int i = bounds[0]; i < bounds[1]; i++) {
+            String message = read(positions[i]);
+            if (message != null) {
+                action.accept(message);
+            }
+        }
+    }
+
+    /**
+     * Flushes queued appends, seals the active segment and closes all files.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.durable.completeExceptionally(new IOException("Transcript log is closed"));
+        }
+        for (Segment segment : segments.values()) {
+            if (segment == active) {
+                seal(segment);
+            }
+            segment.channel.close();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(String sessionId, byte type, String message) {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 2 + session.length + text.length;
+        if (session.length > 0xFFFF || RECORD_HEADER + length > segmentBytes) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Record too large"));
+        }
+        byte[] record = new byte[RECORD_HEADER + length];
+        int p = RECORD_HEADER;
+        record[p++] = type;
+        record[p++] = (byte) (session.length >>> 8);
+        record[p++] = (byte) session.length;
+        System.arraycopy(session, 0, record, p, session.length);
+        System.arraycopy(text, 0, record, p + session.length, text.length);
+        putInt(record, 0, length);
+        Pending pending = new Pending(sessionId, type, record);
+        if (!running) {
+            pending.durable.completeExceptionally(new IOException("Transcript log is closed"));
+            return pending.durable;
+        }
+        queue.add(pending);
+        // A close that ran after the check above may have drained the queue already
+        if (!running && queue.remove(pending)) {
+            pending.durable.completeExceptionally(new IOException("Transcript log is closed"));
+        }
+        return pending.durable;
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(20, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Transcript write failed: {0}", e.getMessage());
+                // Records published before the failure are already complete and stay so
+                for (Pending pending : batch) {
+                    pending.durable.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch, fsyncs it once, then publishes the new positions to readers and completes
+     * the callers' futures. On failure, records already fsynced stay published and the rest are
+     * cut off the active segment.
+     */
+    private void writeBatch(List<Pending> batch) throws IOException {
+        int syncFrom = active.size;
+        int published = 0;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] record = batch.get(i).record;
+                if (active.size + record.length + RECORD_HEADER > segmentBytes) {
+                    active.map.force(syncFrom, active.size - syncFrom);
+                    publish(batch, published, i);
+                    published = i;
+                    // Nothing is left to cut off if the roll fails
+                    syncFrom = active.size;
+                    roll();
+                    syncFrom = 0;
+                }
+                crc.reset();
+                crc.update(record, RECORD_HEADER, record.length - RECORD_HEADER);
+                putInt(record, 4, (int) crc.getValue());
+                active.map.put(active.size, record);
+                batch.get(i).position = ((long) active.id << 32) | active.size;
+                active.size += record.length;
+            }
+            active.map.force(syncFrom, active.size - syncFrom);
+        } catch (IOException | RuntimeException e) {
+            discardFrom(syncFrom);
+            throw e;
+        }
+        publish(batch, published, batch.size());
+        enforceRetention();
+    }
+
+    private void publish(List<Pending> batch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Pending pending = batch.get(i);
+            apply(pending.sessionId, pending.type, pending.position);
+            pending.durable.complete(null);
+        }
+    }
+
+    /**
+     * Cuts unsynced records off the active segment, ending it with a zero length so recovery
+     * stops there even if some of them reached the disk.
+     */
+    private void discardFrom(int offset) {
+        if (active.size <= offset) {
+            return;
+        }
+        active.size = offset;
+        if (offset + 4 <= active.map.limit() && !active.map.isReadOnly()) {
+            active.map.putInt(offset, 0);
+        }
+    }
+
+    private void apply(String sessionId, byte type, long position) {
+        if (type == RESET) {
+            index.remove(sessionId);
+        } else {
+            index.computeIfAbsent(sessionId, id -> new PositionList()).add(position);
+        }
+    }
+
+    private String read(long position) {
+        Segment segment = segments.get((int) (position >>> 32));
+        if (segment == null) {
+            return null;
+        }
+        MappedByteBuffer map = segment.map;
+        int offset = (int) position;
+        int length = map.getInt(offset);
+        int sessionLength = map.getShort(offset + RECORD_HEADER + 1) & 0xFFFF;
+        int textStart = offset + RECORD_HEADER + 3 + sessionLength;
+        byte[] text = new byte[offset + RECORD_HEADER + length - textStart];
+        map.get(textStart, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads existing segments, rebuilding the index and truncating any torn tail.
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(id, file, channel);
+            int fileSize = (int) channel.size();
+            segment.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            segment.size = scan(segment, fileSize);
+            if (segment.size < fileSize) {
+                channel.truncate(segment.size);
+                segment.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+            segments.put(id, segment);
+        }
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            // Reopen the newest segment for writing
+            active = segments.lastEntry().getValue();
+            active.map = active.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, active.size));
+        }
+    }
+
+    /**
+     * Replays a segment's records into the index.
+     * @return Offset just past the last intact record.
+     */
+    private int scan(Segment segment, int fileSize) {
+        MappedByteBuffer map = segment.map;
+        int offset = 0;
+        while (offset + RECORD_HEADER <= fileSize) {
+            int length = map.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 3 || offset + RECORD_HEADER + length > fileSize) {
+                LOGGER.log(Level.WARNING, "Truncating torn record in {0} at {1}", new Object[] {segment.path, offset});
+                break;
+            }
+            byte[] body = new byte[length];
+            map.get(offset + RECORD_HEADER, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(offset + 4)) {
+                LOGGER.log(Level.WARNING, "Truncating corrupt record in {0} at {1}", new Object[] {segment.path, offset});
+                break;
+            }
+            int sessionLength = ((body[1] & 0xFF) << 8) | (body[2] & 0xFF);
+            String sessionId = new String(body, 3, sessionLength, StandardCharsets.UTF_8);
+            apply(sessionId, body[0], ((long) segment.id << 32) | offset);
+            offset += RECORD_HEADER + length;
+        }
+        return offset;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            seal(active);
+        }
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("%s%010d%s", PREFIX, id, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segment.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.put(id, segment);
+        active = segment;
+    }
+
+    /**
+     * Trims a full segment to its used size and remaps it read-only.
+     */
+    private void seal(Segment segment) throws IOException {
+        segment.map.force();
+        segment.channel.truncate(segment.size);
+        segment.map = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+    }
+
+    private void enforceRetention() throws IOException {
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            int oldestLive = segments.firstKey();
+            // Sessions with nothing left are forgotten rather than kept as empty lists
+            index.values().removeIf(list -> list.dropBefore(oldestLive));
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+            LOGGER.log(Level.INFO, "Deleted expired transcript segment {0}", oldest.path);
+        }
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,84 @@
+package clientside;
+
+import chatserver.ChatNetworkServer;
+import chatserver.ChatServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives a loopback {@link ChatNetworkServer} with many concurrent {@link NetworkClient}s and
+ * reports throughput and round-trip latency.
+ * Usage: {@code ChatLoadGenerator [connections] [messagesPerConnection] [selectorThreads]}
+ */
+public class ChatLoadGenerator {
+    private static final Logger LOGGER = Logger.getLogger(ChatLoadGenerator.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int messagesPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int selectorThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // Per-message INFO logging would dominate the measurement
+        Logger.getLogger(ChatServer.class.getName()).setLevel(Level.WARNING);
+
+        ChatServer chatServer = new ChatServer();
+        InetSocketAddress bind = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (ChatNetworkServer networkServer = new ChatNetworkServer(chatServer, bind, selectorThreads)) {
+            networkServer.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), networkServer.getPort());
+
+            long[][] latencies = new long[connections][];
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Future<?>[] runs = new Future<?>[connections];
+                for (int c = 0; c < connections; c++) {
+                    final int id = c;
+                    runs[c] = executor.submit(() -> {
+                        latencies[id] = runConnection(address, "load-" + id, messagesPerConnection);
+                        return null;
+                    });
+                }
+                for (Future<?> run : runs) {
+                    run.get();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            double seconds = elapsed / 1e9;
+            LOGGER.info(String.format("connections=%d messages=%d elapsed=%.2fs throughput=%.0f msg/s",
+                connections, all.length, seconds, all.length / seconds));
+            LOGGER.info(String.format("latency p50=%.1fus p99=%.1fus max=%.1fus",
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3));
+        }
+    }
+
+    /**
+     * Opens a room, sends messages one at a time, and records each round trip.
+     * @return Round-trip latencies in nanoseconds.
+     */
+    private static long[] runConnection(InetSocketAddress address, String sessionId, int messages) throws Exception {
+        long[] latencies = new long[messages];
+        try (NetworkClient client = new NetworkClient(address, "User", sessionId)) {
+            client.openSession();
+            for (int i = 0; i < messages; i++) {
+                long sent = System.nanoTime();
+                client.sendMessage("Load message " + i);
+                latencies[i] = System.nanoTime() - sent;
+            }
+            client.closeSession();
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
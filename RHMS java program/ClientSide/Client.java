@@ -1,7 +1,9 @@
-package ClientSide;
+package clientside;
 
-import ChatServerSystem.ChatServer;
-import ExceptionHandler.RpmsErrorHandling;
+import chatserver.ChatServer;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsErrorHandling;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -11,6 +13,7 @@ public class Client {
     private static final Logger LOGGER = Logger.getLogger(Client.class.getName());
     private final String userRole;
     private final ChatServer server;
+    private final String sessionId;
 
     /**
      * Constructs a new Client with a user role and associated chat server.
@@ -20,14 +23,27 @@ public class Client {
      * @throws RpmsErrorHandling If userRole is null or empty.
      */
     public Client(ChatServer server, String userRole) throws RpmsErrorHandling {
+        this(server, userRole, null);
+    }
+
+    /**
+     * Constructs a new Client that chats in a specific room of the server.
+     * @param server The chat server to communicate with.
+     * @param userRole The client's identifier or role.
+     * @param sessionId The room's session identifier, or null for the server's default session.
+     * @throws IllegalArgumentException If server is null.
+     * @throws RpmsErrorHandling If userRole is null or empty.
+     */
+    public Client(ChatServer server, String userRole, String sessionId) throws RpmsErrorHandling {
         if (server == null) {
             throw new IllegalArgumentException("ChatServer cannot be null");
         }
         if (userRole == null || userRole.trim().isEmpty()) {
-            throw new RpmsErrorHandling("User role cannot be null or empty");
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "User role cannot be null or empty");
         }
         this.server = server;
         this.userRole = userRole;
+        this.sessionId = sessionId;
     }
 
     /**
@@ -37,9 +53,13 @@ public class Client {
      */
     public void sendMessage(String message) throws RpmsErrorHandling {
         if (message == null || message.trim().isEmpty()) {
-            throw new RpmsErrorHandling("Message cannot be empty");
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message cannot be empty");
+        }
+        if (sessionId == null) {
+            server.routeMessage(userRole, message);
+        } else {
+            server.routeMessage(sessionId, userRole, message);
         }
-        server.routeMessage(userRole, message);
     }
 
     /**
@@ -49,10 +69,16 @@ public class Client {
     public void displayChat(boolean onlyOwnMessages) {
         try {
             LOGGER.info("\n---Chat History---");
-            for (String chat : server.getSessionTranscript()) {
-                if (!onlyOwnMessages || chat.startsWith("[" + userRole + "]:")) {
+            String ownPrefix = "[" + userRole + "]:";
+            Consumer<String> show = chat -> {
+                if (!onlyOwnMessages || chat.startsWith(ownPrefix)) {
                     LOGGER.info(chat);
                 }
+            };
+            if (sessionId == null) {
+                server.forEachMessage(show);
+            } else {
+                server.forEachMessage(sessionId, show);
             }
         } catch (Exception e) {
             LOGGER.severe("Error retrieving chat history: " + e.getMessage());
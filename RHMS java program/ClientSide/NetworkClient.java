@@ -0,0 +1,182 @@
+package clientside;
+
+import chatserver.ChatFrame;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsErrorHandling;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A chat client that talks to a {@code ChatNetworkServer} over TCP instead of calling
+ * {@code ChatServer} in-process. Mirrors the {@link Client} API for a single room.
+ */
+public class NetworkClient implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(NetworkClient.class.getName());
+    private final String userRole;
+    private final String sessionId;
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(ChatFrame.HEADER_BYTES);
+    private ByteBuffer body = ByteBuffer.allocate(512);
+
+    /**
+     * Connects to a chat server.
+     * @param address The server address.
+     * @param userRole The client's identifier or role.
+     * @param sessionId The room's session identifier.
+     * @throws RpmsErrorHandling If userRole or sessionId is empty, or the connection fails.
+     */
+    public NetworkClient(InetSocketAddress address, String userRole, String sessionId) throws RpmsErrorHandling {
+        if (userRole == null || userRole.trim().isEmpty()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "User role cannot be null or empty");
+        }
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Session id cannot be null or empty");
+        }
+        this.userRole = userRole;
+        this.sessionId = sessionId;
+        try {
+            this.channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new RpmsErrorHandling("Cannot connect to chat server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens this client's room on the server.
+     * @throws RpmsErrorHandling If the room is already active or the connection fails.
+     */
+    public synchronized void openSession() throws RpmsErrorHandling {
+        call(ChatFrame.encode(ChatFrame.OPEN, sessionId), null);
+    }
+
+    /**
+     * Ends this client's room on the server.
+     * @throws RpmsErrorHandling If the room is not active or the connection fails.
+     */
+    public synchronized void closeSession() throws RpmsErrorHandling {
+        call(ChatFrame.encode(ChatFrame.CLOSE, sessionId), null);
+    }
+
+    /**
+     * Sends a message to the chat server.
+     * @param message The message to send.
+     * @throws RpmsErrorHandling If the message is empty or too long, or the server rejects it.
+     */
+    public synchronized void sendMessage(String message) throws RpmsErrorHandling {
+        if (message == null || message.trim().isEmpty()) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message cannot be empty");
+        }
+        ByteBuffer frame;
+        try {
+            frame = ChatFrame.encode(ChatFrame.SEND, sessionId, userRole, message);
+        } catch (IllegalArgumentException e) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message too long");
+        }
+        call(frame, null);
+    }
+
+    /**
+     * Fetches the room's transcript from the server.
+     * @return Messages in the room.
+     * @throws RpmsErrorHandling If the connection fails.
+     */
+    public synchronized List<String> getTranscript() throws RpmsErrorHandling {
+        List<String> transcript = new ArrayList<>();
+        call(ChatFrame.encode(ChatFrame.TRANSCRIPT, sessionId), transcript);
+        return transcript;
+    }
+
+    /**
+     * Displays the chat history from the server.
+     * @param onlyOwnMessages If true, only displays messages sent by this client.
+     */
+    public void displayChat(boolean onlyOwnMessages) {
+        try {
+            LOGGER.info("\n---Chat History---");
+            for (String chat : getTranscript()) {
+                if (!onlyOwnMessages || chat.startsWith("[" + userRole + "]:")) {
+                    LOGGER.info(chat);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving chat history: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the client's user role.
+     * @return The user role.
+     */
+    public String getUserRole() {
+        return userRole;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes a request and reads frames until its OK or ERROR response.
+     * @param request Encoded request frame.
+     * @param messages List that MESSAGES frames are added to, or null if none are expected.
+     * @throws RpmsErrorHandling If the server answers ERROR or the connection fails.
+     */
+    private void call(ByteBuffer request, List<String> messages) throws RpmsErrorHandling {
+        try {
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+            while (true) {
+                ByteBuffer response = readFrame();
+                byte type = response.get();
+                if (type == ChatFrame.OK) {
+                    return;
+                }
+                if (type == ChatFrame.ERROR) {
+                    throw RpmsErrorHandling.withoutStackTrace(ErrorCode.GENERAL_ERROR, ChatFrame.readString(response));
+                }
+                if (type == ChatFrame.MESSAGES && messages != null) {
+                    messages.add(ChatFrame.readString(response));
+                } else {
+                    throw new RpmsErrorHandling("Unexpected frame type " + type);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RpmsErrorHandling("Chat connection failed: " + e.getMessage());
+        }
+    }
+
+    private ByteBuffer readFrame() throws IOException {
+        header.clear();
+        readFully(header);
+        int bodyLength = header.flip().getInt();
+        if (bodyLength <= 0 || bodyLength > ChatFrame.MAX_BODY_BYTES) {
+            throw new IOException("Bad frame length " + bodyLength);
+        }
+        if (body.capacity() < bodyLength) {
+            body = ByteBuffer.allocate(bodyLength);
+        }
+        body.clear().limit(bodyLength);
+        readFully(body);
+        return body.flip();
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+}
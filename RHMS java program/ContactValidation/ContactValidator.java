@@ -0,0 +1,68 @@
+package contactvalidation;
+
+/**
+ * Hand-written email and phone checks shared by every sender.
+ * They accept exactly what the old {@code String.matches} patterns accepted
+ * ({@code ^[A-Za-z0-9+_.-]+@(.+)$} and {@code \+?[1-9]\d{1,14}}), without compiling a regex per call.
+ */
+public final class ContactValidator {
+    private static final int MAX_PHONE_DIGITS = 15;
+
+    private ContactValidator() {
+    }
+
+    /**
+     * Checks an email address.
+     * @param email Address to check.
+     * @return True if valid, false if null or malformed.
+     */
+    public static boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int length = email.length();
+        int at = 0;
+        while (at < length && isLocalChar(email.charAt(at))) {
+            at++;
+        }
+        if (at == 0 || at >= length - 1 || email.charAt(at) != '@') {
+            return false;
+        }
+        // The domain part is ".+", which matches anything except line terminators
+        for (int i = at + 1; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a phone number in E.164 style: optional '+', then 2 to 15 digits not starting with 0.
+     * @param phone Number to check.
+     * @return True if valid, false if null or malformed.
+     */
+    public static boolean isValidPhone(String phone) {
+        if (phone == null) {
+            return false;
+        }
+        int start = !phone.isEmpty() && phone.charAt(0) == '+' ? 1 : 0;
+        int digits = phone.length() - start;
+        if (digits < 2 || digits > MAX_PHONE_DIGITS || phone.charAt(start) == '0') {
+            return false;
+        }
+        for (int i = start; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLocalChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '+' || c == '_' || c == '.' || c == '-';
+    }
+}
@@ -0,0 +1,85 @@
+package contactvalidation;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+
+/**
+ * An email address and phone number that have already passed {@link ContactValidator}.
+ * Code that receives one can send to it without checking the addresses again.
+ */
+public final class ValidatedContact {
+    private static final ValidationResult<ValidatedContact> INVALID_EMAIL =
+        ValidationResult.invalid(ErrorCode.INVALID_INPUT, "Invalid email address");
+    private static final ValidationResult<ValidatedContact> INVALID_PHONE =
+        ValidationResult.invalid(ErrorCode.INVALID_INPUT, "Invalid phone number");
+    private final String email;
+    private final String phone;
+
+    private ValidatedContact(String email, String phone) {
+        this.email = email;
+        this.phone = phone;
+    }
+
+    /**
+     * Validates an email address and phone number.
+     * @param email Email address.
+     * @param phone Phone number.
+     * @return The validated contact.
+     * @throws RpmsException If either is invalid.
+     */
+    public static ValidatedContact of(String email, String phone) throws RpmsException {
+        return of(email, phone, "Invalid email address", "Invalid phone number");
+    }
+
+    /**
+     * Validates an email address and phone number without throwing, for callers that expect
+     * some bad contacts and check many of them.
+     * @param email Email address.
+     * @param phone Phone number.
+     * @return Valid result holding the contact, or a shared invalid result.
+     */
+    public static ValidationResult<ValidatedContact> tryOf(String email, String phone) {
+        if (!ContactValidator.isValidEmail(email)) {
+            return INVALID_EMAIL;
+        }
+        if (!ContactValidator.isValidPhone(phone)) {
+            return INVALID_PHONE;
+        }
+        return ValidationResult.valid(new ValidatedContact(email, phone));
+    }
+
+    /**
+     * Validates an email address and phone number, reporting failures with the caller's messages.
+     * @param email Email address.
+     * @param phone Phone number.
+     * @param emailError Message used if the email is invalid.
+     * @param phoneError Message used if the phone number is invalid.
+     * @return The validated contact.
+     * @throws RpmsException If either is invalid; the exception has no stack trace.
+     */
+    public static ValidatedContact of(String email, String phone, String emailError, String phoneError)
+            throws RpmsException {
+        if (!ContactValidator.isValidEmail(email)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, emailError);
+        }
+        if (!ContactValidator.isValidPhone(phone)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, phoneError);
+        }
+        return new ValidatedContact(email, phone);
+    }
+
+    /*
+     * Getter
+     */
+    public String getEmail() {
+        return email;
+    }
+    public String getPhone() {
+        return phone;
+    }
+
+    @Override
+    public String toString() {
+        return email + " / " + phone;
+    }
+}
@@ -0,0 +1,76 @@
+package contactvalidation;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+
+/**
+ * Outcome of a check that reports failure as a value instead of throwing.
+ * Failures with a fixed message can be created once and shared, so rejecting bad input
+ * allocates nothing.
+ * @param <T> Type of the validated value.
+ */
+public final class ValidationResult<T> {
+    private final T value;
+    private final ErrorCode error;
+    private final String message;
+
+    private ValidationResult(T value, ErrorCode error, String message) {
+        this.value = value;
+        this.error = error;
+        this.message = message;
+    }
+
+    /**
+     * Creates a successful result.
+     * @param value Validated value.
+     * @param <T> Type of the value.
+     * @return Valid result.
+     */
+    public static <T> ValidationResult<T> valid(T value) {
+        return new ValidationResult<>(value, null, null);
+    }
+
+    /**
+     * Creates a failed result.
+     * @param error Error code.
+     * @param message What was wrong.
+     * @param <T> Type the value would have had.
+     * @return Invalid result.
+     */
+    public static <T> ValidationResult<T> invalid(ErrorCode error, String message) {
+        return new ValidationResult<>(null, error, message);
+    }
+
+    /*
+     * Getter
+     */
+    public boolean isValid() {
+        return error == null;
+    }
+    public T getValue() {
+        return value;
+    }
+    public ErrorCode getError() {
+        return error;
+    }
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the value, or throws the failure for callers that want an exception after all.
+     * @return Validated value.
+     * @throws RpmsException If the result is invalid; the exception has no stack trace.
+     */
+    public T orThrow() throws RpmsException {
+        if (error != null) {
+            throw RpmsException.withoutStackTrace(error, message);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "Valid[" + value + "]" : "Invalid[" + error + ": " + message + "]";
+    }
+}
@@ -0,0 +1,234 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsErrorHandling;
+
+/**
+ * Represents a custom date and time with year, month, day, and hour.
+ * Stored as a single int counting wall-clock hours since 1970-01-01 00:00, so dates are
+ * immutable, compare with one int comparison, and can be sorted or bucketed as plain ints.
+ */
+public final class CustomDate implements Comparable<CustomDate> {
+    private static final int MIN_YEAR = 1900;
+    private static final int MAX_YEAR = 2100;
+    private static final int MIN_EPOCH_HOUR = toEpochHour(MIN_YEAR, 1, 1, 0);
+    private static final int MAX_EPOCH_HOUR = toEpochHour(MAX_YEAR, 12, 31, 23);
+
+    private final int epochHour;
+    private String formatted;
+
+    /**
+     * Constructs a CustomDate with the specified year, month, day, and hour.
+     * @param year The year (1900-2100).
+     * @param month The month (1-12).
+     * @param day The day (1-31, depending on the month and year).
+     * @param hour The hour (0-23).
+     * @throws RpmsErrorHandling If any input is invalid.
+     */
+    public CustomDate(int year, int month, int day, int hour) throws RpmsErrorHandling {
+        validate(year, month, day, hour);
+        this.epochHour = toEpochHour(year, month, day, hour);
+    }
+
+    private CustomDate(int epochHour) {
+        this.epochHour = epochHour;
+    }
+
+    /**
+     * Creates a date from its epoch-hour encoding.
+     * @param epochHour Hours since 1970-01-01 00:00.
+     * @return The date.
+     * @throws RpmsErrorHandling If the hour falls outside 1900-2100.
+     */
+    public static CustomDate ofEpochHour(long epochHour) throws RpmsErrorHandling {
+        if (epochHour < MIN_EPOCH_HOUR || epochHour > MAX_EPOCH_HOUR) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Year must be between 1900 and 2100");
+        }
+        return new CustomDate((int) epochHour);
+    }
+
+    public int getYear() {
+        return yearOf(epochHour);
+    }
+    public int getMonth() {
+        return (int) (civil(Math.floorDiv(epochHour, 24)) >>> 8 & 0xFF);
+    }
+    public int getDay() {
+        return (int) (civil(Math.floorDiv(epochHour, 24)) & 0xFF);
+    }
+    public int getHour() {
+        return Math.floorMod(epochHour, 24);
+    }
+
+    /**
+     * Returns the epoch-hour encoding of this date.
+     * @return Hours since 1970-01-01 00:00.
+     */
+    public int toEpochHour() {
+        return epochHour;
+    }
+
+    /**
+     * Returns a date the given number of hours later (or earlier, if negative).
+     * @param hours Hours to add.
+     * @return The new date.
+     * @throws RpmsErrorHandling If the result falls outside 1900-2100.
+     */
+    public CustomDate plusHours(long hours) throws RpmsErrorHandling {
+        return hours == 0 ? this : ofEpochHour(epochHour + hours);
+    }
+
+    /**
+     * Returns the number of hours from one date to another.
+     * @param from Start date.
+     * @param to End date.
+     * @return Hours between them, negative if {@code to} is earlier.
+     */
+    public static long hoursBetween(CustomDate from, CustomDate to) {
+        return (long) to.epochHour - from.epochHour;
+    }
+
+    /**
+     * Checks that the parts make a valid date, without creating one.
+     * @param year The year.
+     * @param month The month.
+     * @param day The day.
+     * @param hour The hour.
+     * @throws RpmsErrorHandling If any part is invalid.
+     */
+    public static void validate(int year, int month, int day, int hour) throws RpmsErrorHandling {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Year must be between 1900 and 2100");
+        }
+        if (month < 1 || month > 12) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Month must be between 1 and 12");
+        }
+        if (day < 1) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Day must be at least 1");
+        }
+        int maxDays;
+        switch (month) {
+            case 4: case 6: case 9: case 11:
+                maxDays = 30;
+                break;
+            case 2:
+                maxDays = isLeapYear(year) ? 29 : 28;
+                break;
+            default:
+                maxDays = 31;
+        }
+        if (day > maxDays) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT,
+                "Day must be valid for the given month and year (max: " + maxDays + ")");
+        }
+        if (hour < 0 || hour > 23) {
+            throw RpmsErrorHandling.withoutStackTrace(ErrorCode.INVALID_INPUT, "Hour must be between 0 and 23");
+        }
+    }
+
+    /**
+     * Encodes date parts as hours since 1970-01-01 00:00 without creating an object.
+     * The parts are not validated.
+     * @param year The year.
+     * @param month The month.
+     * @param day The day.
+     * @param hour The hour.
+     * @return Epoch hour.
+     */
+    public static int toEpochHour(int year, int month, int day, int hour) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        int epochDay = era * 146097 + dayOfEra - 719468;
+        return epochDay * 24 + hour;
+    }
+
+    /**
+     * Returns the year of an epoch hour.
+     * @param epochHour Hours since 1970-01-01 00:00.
+     * @return The year.
+     */
+    public static int yearOf(int epochHour) {
+        return (int) (civil(Math.floorDiv(epochHour, 24)) >> 16);
+    }
+
+    /**
+     * Checks if the given year is a leap year.
+     * @param year The year to check.
+     * @return True if the year is a leap year, false otherwise.
+     */
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || (year % 400 == 0);
+    }
+
+    /**
+     * Converts days since 1970-01-01 to year, month and day packed as {@code year << 16 | month << 8 | day}.
+     */
+    private static long civil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return ((long) year << 16) | (month << 8) | day;
+    }
+
+    @Override
+    public int compareTo(CustomDate other) {
+        return Integer.compare(epochHour, other.epochHour);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CustomDate && ((CustomDate) other).epochHour == epochHour;
+    }
+
+    @Override
+    public int hashCode() {
+        return epochHour;
+    }
+
+    /**
+     * Appends the date in the format "YYYY-MM-DD:HH.AM/PM" without going through String.format.
+     * @param out Builder to append to.
+     * @param epochHour Hours since 1970-01-01 00:00.
+     * @return The same builder.
+     */
+    public static StringBuilder formatTo(StringBuilder out, int epochHour) {
+        long ymd = civil(Math.floorDiv(epochHour, 24));
+        int year = (int) (ymd >> 16);
+        int month = (int) (ymd >>> 8 & 0xFF);
+        int day = (int) (ymd & 0xFF);
+        int hour = Math.floorMod(epochHour, 24);
+        int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+        out.append(year).append('-');
+        appendTwoDigits(out, month).append('-');
+        appendTwoDigits(out, day).append(':');
+        return appendTwoDigits(out, hour12).append(hour < 12 ? ".AM" : ".PM");
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Returns a string representation of the date in the format "YYYY-MM-DD:HH.AM/PM".
+     * The text is built once and cached.
+     * @return The formatted date string.
+     */
+    @Override
+    public String toString() {
+        String text = formatted;
+        if (text == null) {
+            text = formatTo(new StringBuilder(16), epochHour).toString();
+            formatted = text;
+        }
+        return text;
+    }
+}
@@ -3,6 +3,7 @@ package emailnotifier;
 import jakarta.mail.*;
 import jakarta.mail.internet.*;
 import java.util.Properties;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import notifier.Notifiable;
 
@@ -11,8 +12,12 @@ import notifier.Notifiable;
  */
 public class EmailNotification implements Notifiable {
     private static final Logger LOGGER = Logger.getLogger(EmailNotification.class.getName());
+    private static final long VALIDATE_AFTER_MILLIS = 30_000;
+    private static final long MAX_IDLE_MILLIS = 240_000;
+    private static final String SOCKET_TIMEOUT_MILLIS = "10000";
     private final Session mailSession;
     private final String from ;
+    private final SmtpTransportPool transportPool;
 
     /**
      * Constructs an EmailNotification instance with the specified sender credentials and SMTP settings.
@@ -22,12 +27,32 @@ public class EmailNotification implements Notifiable {
      * @param smtpPort The SMTP server port (e.g., 587 for TLS).
      */
     public EmailNotification(String from, String password, String smtpHost, String smtpPort) {
+        this(from, password, smtpHost, smtpPort, 0);
+    }
+
+    /**
+     * Constructs an EmailNotification that reuses a pool of authenticated SMTP connections
+     * instead of opening a new one per email.
+     * @param from The sender's email address.
+     * @param password The sender's password or app-specific password.
+     * @param smtpHost The SMTP server host (e.g., smtp.gmail.com).
+     * @param smtpPort The SMTP server port (e.g., 587 for TLS).
+     * @param poolSize Number of connections to keep open, or 0 to connect per email.
+     */
+    public EmailNotification(String from, String password, String smtpHost, String smtpPort, int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Pool size can't be negative");
+        }
         this.from = from;
         Properties props = new Properties();
         props.put("mail.smtp.auth", "true");
         props.put("mail.smtp.starttls.enable", "true");
         props.put("mail.smtp.host", smtpHost);
         props.put("mail.smtp.port", smtpPort);
+        // Without socket timeouts a hung server holds a send, and its bulkhead permit, forever
+        props.put("mail.smtp.connectiontimeout", SOCKET_TIMEOUT_MILLIS);
+        props.put("mail.smtp.timeout", SOCKET_TIMEOUT_MILLIS);
+        props.put("mail.smtp.writetimeout", SOCKET_TIMEOUT_MILLIS);
 
         this.mailSession = Session.getInstance(props, new Authenticator() {
             @Override
@@ -35,6 +60,9 @@ public class EmailNotification implements Notifiable {
                 return new PasswordAuthentication(from, password);
             }
         });
+        this.transportPool = poolSize == 0 ? null : new SmtpTransportPool(
+            mailSession, smtpHost, Integer.parseInt(smtpPort), from, password,
+            poolSize, VALIDATE_AFTER_MILLIS, MAX_IDLE_MILLIS);
     }
 
     /**
@@ -63,13 +91,26 @@ public class EmailNotification implements Notifiable {
             message.setSubject(subject);
             message.setText(messageText);
 
-            Transport.send(message);
-            LOGGER.info("Email sent to " + to + " successfully!");
+            if (transportPool != null) {
+                transportPool.send(message);
+            } else {
+                Transport.send(message);
+            }
+            LOGGER.log(Level.INFO, "Email sent to {0} successfully!", to);
         } catch (MessagingException e) {
-            LOGGER.severe("Failed to send email to " + to + ": " + e.getMessage());
+            LOGGER.log(Level.SEVERE, "Failed to send email to {0}: {1}", new Object[] {to, e.getMessage()});
             throw new NotificationException("Failed to send email", e);
         }
     }
+
+    /**
+     * Closes pooled SMTP connections. Has no effect when pooling is off.
+     */
+    public void close() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
 }
 
 /**
@@ -0,0 +1,227 @@
+package emailnotifier;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a fixed number of authenticated SMTP connections open and reuses them across sends,
+ * so each email skips the TCP connect, STARTTLS and AUTH round-trips.
+ * <p>
+ * A connection the server dropped while it sat in the pool only shows up when a send fails on
+ * it, so such a send is retried once on a new connection. A background sweep also closes idle
+ * connections past the idle limit and checks the stale ones, so the pool does not hold sockets
+ * the server has long since given up on.
+ */
+class SmtpTransportPool {
+    private static final Logger LOGGER = Logger.getLogger(SmtpTransportPool.class.getName());
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String user;
+    private final String password;
+    private final BlockingQueue<PooledTransport> idle;
+    private final Semaphore permits;
+    private final long validateAfterMillis;
+    private final long maxIdleMillis;
+    private final ScheduledExecutorService sweeper;
+    private volatile boolean closed;
+
+    /**
+     * An open connection, when it was last used, and whether it has sent anything yet.
+     */
+    private static final class PooledTransport {
+        final Transport transport;
+        long lastUsed;
+        boolean used;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Creates an empty pool; connections are opened on first use. Idle connections are swept every
+     * validateAfterMillis until the pool is closed.
+     * @param session Mail session to create transports from.
+     * @param host SMTP host.
+     * @param port SMTP port.
+     * @param user SMTP user.
+     * @param password SMTP password.
+     * @param size Maximum number of open connections.
+     * @param validateAfterMillis Idle time after which a connection is checked with NOOP before reuse.
+     * @param maxIdleMillis Idle time after which a connection is closed instead of reused.
+     */
+    SmtpTransportPool(Session session, String host, int port, String user, String password,
+                      int size, long validateAfterMillis, long maxIdleMillis) {
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.user = user;
+        this.password = password;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.permits = new Semaphore(size, true);
+        this.validateAfterMillis = validateAfterMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "smtp-pool-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task and stop every later sweep
+                LOGGER.log(Level.WARNING, "SMTP pool sweep failed", e);
+            }
+        }, validateAfterMillis, validateAfterMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a message over a pooled connection, waiting for one if all are busy. If a reused
+     * connection fails below the SMTP level, the message is sent once more on a new connection.
+     * @param message Message to send.
+     * @throws MessagingException If the pool is closed or sending fails.
+     */
+    void send(Message message) throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for SMTP connection", e);
+        }
+        PooledTransport pooled = null;
+        try {
+            pooled = checkout();
+            message.saveChanges();
+            try {
+                pooled.transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                if (!pooled.used || !isConnectionFailure(e, pooled.transport)) {
+                    throw e;
+                }
+                LOGGER.log(Level.FINE, "Reused SMTP connection failed, retrying on a new one: {0}", e.getMessage());
+                closeQuietly(pooled);
+                pooled = null;
+                pooled = open();
+                pooled.transport.sendMessage(message, message.getAllRecipients());
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            pooled.used = true;
+            if (closed || !idle.offer(pooled)) {
+                closeQuietly(pooled);
+            }
+            pooled = null;
+        } finally {
+            // A connection that failed mid-send is in an unknown state, so drop it
+            if (pooled != null) {
+                closeQuietly(pooled);
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections, stops the sweep and rejects further sends.
+     */
+    void close() {
+        closed = true;
+        sweeper.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.poll()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    /**
+     * Returns the number of connections currently idle in the pool.
+     * @return Idle connection count.
+     */
+    int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Takes an idle connection, validating or replacing it if it sat too long.
+     * @return A connected transport.
+     * @throws MessagingException If a new connection cannot be opened.
+     */
+    private PooledTransport checkout() throws MessagingException {
+        PooledTransport pooled = idle.poll();
+        if (pooled != null) {
+            long idleFor = System.currentTimeMillis() - pooled.lastUsed;
+            if (idleFor > maxIdleMillis) {
+                closeQuietly(pooled);
+                pooled = null;
+            } else if (idleFor > validateAfterMillis && !pooled.transport.isConnected()) {
+                LOGGER.fine("Evicting stale SMTP connection");
+                closeQuietly(pooled);
+                pooled = null;
+            }
+        }
+        return pooled != null ? pooled : open();
+    }
+
+    /**
+     * Closes idle connections past the idle limit and those that fail a NOOP after sitting past the
+     * validation limit. Only stale connections are taken out of the queue, so a busy pool is left alone.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (PooledTransport pooled : idle) {
+            long idleFor = now - pooled.lastUsed;
+            // A connection that is no longer in the queue was checked out by a sender
+            if (idleFor <= validateAfterMillis || !idle.remove(pooled)) {
+                continue;
+            }
+            if (idleFor > maxIdleMillis || !pooled.transport.isConnected()) {
+                LOGGER.fine("Evicting idle SMTP connection");
+                closeQuietly(pooled);
+            } else if (closed || !idle.offer(pooled)) {
+                closeQuietly(pooled);
+            }
+        }
+    }
+
+    /**
+     * Checks if a send failed because the connection broke rather than because the server
+     * refused the message or its recipients.
+     */
+    private static boolean isConnectionFailure(MessagingException e, Transport transport) {
+        if (e instanceof SendFailedException) {
+            return false;
+        }
+        return e.getCause() instanceof IOException || !transport.isConnected();
+    }
+
+    private PooledTransport open() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        transport.connect(host, port, user, password);
+        return new PooledTransport(transport);
+    }
+
+    private static void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            LOGGER.log(Level.FINE, "Error closing SMTP connection: {0}", e.getMessage());
+        }
+    }
+}
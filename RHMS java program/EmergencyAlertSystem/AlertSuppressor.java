@@ -0,0 +1,272 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which critical readings actually turn into notifications.
+ * <p>
+ * Repeated alerts for the same patient and vital are suppressed for a cooldown period unless the
+ * reading has worsened by at least an escalation step, and each recipient address is limited by a
+ * token bucket. One suppressor can be shared by every {@link EmergencyAlert} on a ward.
+ * <p>
+ * State is kept in concurrent maps bounded to a maximum number of entries. Entries whose cooldown
+ * has passed and whose bucket has refilled are indistinguishable from new ones and are swept first;
+ * if the maps are still full the longest-idle entries are dropped, which can only let an extra alert through.
+ */
+public class AlertSuppressor {
+    private final long cooldownNanos;
+    private final double escalationFraction;
+    private final int maxEntries;
+    private final double bucketCapacity;
+    private final double tokensPerNano;
+    private final LongSupplier clockNanos;
+
+    private final ConcurrentHashMap<VitalKey, Suppression> suppressions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder escalated = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * Sets up a suppressor driven by {@link System#nanoTime()}.
+     * @param cooldownMillis How long repeat alerts for one patient and vital are held back.
+     * @param escalationFraction Worsening, as a fraction of the safe range width, that bypasses the cooldown.
+     * @param maxEntries Most patient/vital and recipient entries kept in memory.
+     * @param bucketCapacity Most alerts a recipient can receive in a burst.
+     * @param alertsPerMinute Steady rate at which a recipient's bucket refills.
+     * @throws RpmsException If any setting is out of range.
+     */
+    public AlertSuppressor(long cooldownMillis, double escalationFraction, int maxEntries,
+            int bucketCapacity, double alertsPerMinute) throws RpmsException {
+        this(cooldownMillis, escalationFraction, maxEntries, bucketCapacity, alertsPerMinute, System::nanoTime);
+    }
+
+    /**
+     * Sets up a suppressor driven by a custom clock.
+     * @param cooldownMillis How long repeat alerts for one patient and vital are held back.
+     * @param escalationFraction Worsening, as a fraction of the safe range width, that bypasses the cooldown.
+     * @param maxEntries Most patient/vital and recipient entries kept in memory.
+     * @param bucketCapacity Most alerts a recipient can receive in a burst.
+     * @param alertsPerMinute Steady rate at which a recipient's bucket refills.
+     * @param clockNanos Monotonic clock in nanoseconds.
+     * @throws RpmsException If any setting is out of range.
+     */
+    public AlertSuppressor(long cooldownMillis, double escalationFraction, int maxEntries,
+            int bucketCapacity, double alertsPerMinute, LongSupplier clockNanos) throws RpmsException {
+        if (cooldownMillis < 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Cooldown can't be negative");
+        }
+        if (!(escalationFraction > 0)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Escalation fraction must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Max entries must be positive");
+        }
+        if (bucketCapacity <= 0 || !(alertsPerMinute > 0)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Rate limit must be positive");
+        }
+        if (clockNanos == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Clock can't be null");
+        }
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        this.escalationFraction = escalationFraction;
+        this.maxEntries = maxEntries;
+        this.bucketCapacity = bucketCapacity;
+        this.tokensPerNano = alertsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.clockNanos = clockNanos;
+    }
+
+    /*
+     * Getter
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+    public long getEscalatedCount() {
+        return escalated.sum();
+    }
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+    public int getTrackedEntries() {
+        return suppressions.size() + buckets.size();
+    }
+
+    /**
+     * Records a critical reading and decides whether it should be alerted.
+     * An alert is allowed if none was sent for this patient and vital within the cooldown,
+     * if the reading crossed to the other side of the safe range, or if it is worse than the
+     * last alerted reading by at least the escalation step.
+     * @param patientId Patient identifier.
+     * @param threshold Violated threshold.
+     * @param value Critical reading.
+     * @return True if the alert should be sent.
+     */
+    public boolean shouldAlert(String patientId, VitalSignThreshold threshold, double value) {
+        long now = clockNanos.getAsLong();
+        double excursion = value < threshold.getMin() ? value - threshold.getMin() : value - threshold.getMax();
+        double step = escalationFraction * (threshold.getMax() - threshold.getMin());
+        VitalKey key = new VitalKey(patientId, VitalRegistry.intern(threshold.getVitalName()));
+        boolean[] allowed = new boolean[1];
+        suppressions.compute(key, (k, state) -> {
+            if (state == null) {
+                state = new Suppression();
+            } else if (now - state.alertedAt < cooldownNanos
+                    && Math.signum(excursion) == Math.signum(state.excursion)
+                    && Math.abs(excursion) < Math.abs(state.excursion) + step) {
+                state.touchedAt = now;
+                return state;
+            } else if (now - state.alertedAt < cooldownNanos) {
+                escalated.increment();
+            }
+            state.alertedAt = now;
+            state.touchedAt = now;
+            state.excursion = excursion;
+            allowed[0] = true;
+            return state;
+        });
+        if (!allowed[0]) {
+            suppressed.increment();
+        }
+        trim(now);
+        return allowed[0];
+    }
+
+    /**
+     * Takes one token from a recipient's bucket.
+     * @param recipient Recipient address (email or phone number).
+     * @return True if the recipient is under its rate limit.
+     */
+    public boolean tryAcquire(String recipient) {
+        long now = clockNanos.getAsLong();
+        boolean[] allowed = new boolean[1];
+        buckets.compute(recipient, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new Bucket(bucketCapacity, now);
+            } else {
+                bucket.tokens = Math.min(bucketCapacity, bucket.tokens + (now - bucket.touchedAt) * tokensPerNano);
+                bucket.touchedAt = now;
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                allowed[0] = true;
+            }
+            return bucket;
+        });
+        if (!allowed[0]) {
+            rateLimited.increment();
+        }
+        trim(now);
+        return allowed[0];
+    }
+
+    /**
+     * Sweeps the maps once they grow past the entry limit. Only one caller sweeps at a time;
+     * the others carry on, so the maps may briefly exceed the limit by the number of callers.
+     * @param now Current clock reading.
+     */
+    private void trim(long now) {
+        if (suppressions.size() + buckets.size() <= maxEntries || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long refillNanos = (long) (bucketCapacity / tokensPerNano);
+            suppressions.values().removeIf(state -> now - state.alertedAt >= cooldownNanos);
+            buckets.values().removeIf(bucket -> now - bucket.touchedAt >= refillNanos);
+            if (suppressions.size() + buckets.size() > maxEntries) {
+                long cutoff = now - Math.min(cooldownNanos, refillNanos) / 2;
+                suppressions.values().removeIf(state -> state.touchedAt < cutoff);
+                buckets.values().removeIf(bucket -> bucket.touchedAt < cutoff);
+            }
+            if (suppressions.size() + buckets.size() > maxEntries) {
+                evictLongestIdle(now, maxEntries - maxEntries / 10);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Drops the entries idle the longest until the maps hold about a target number of entries.
+     * @param now Current clock reading.
+     * @param target Entry count to get down to.
+     */
+    private void evictLongestIdle(long now, int target) {
+        long[] idle = new long[suppressions.size() + buckets.size()];
+        int count = 0;
+        // The maps can grow while they are read; entries added since are the freshest anyway
+        for (Iterator<Suppression> it = suppressions.values().iterator(); it.hasNext() && count < idle.length; ) {
+            idle[count++] = now - it.next().touchedAt;
+        }
+        for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext() && count < idle.length; ) {
+            idle[count++] = now - it.next().touchedAt;
+        }
+        int excess = count - target;
+        if (excess <= 0) {
+            return;
+        }
+        Arrays.sort(idle, 0, count);
+        // Entries tied with the cutoff go too, which can only let an extra alert through
+        long cutoff = idle[count - excess];
+        suppressions.values().removeIf(state -> now - state.touchedAt >= cutoff);
+        buckets.values().removeIf(bucket -> now - bucket.touchedAt >= cutoff);
+    }
+
+    /**
+     * Map key for one patient's vital.
+     */
+    private static final class VitalKey {
+        private final String patientId;
+        private final int vitalId;
+
+        VitalKey(String patientId, int vitalId) {
+            this.patientId = patientId;
+            this.vitalId = vitalId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof VitalKey)) {
+                return false;
+            }
+            VitalKey key = (VitalKey) other;
+            return vitalId == key.vitalId && patientId.equals(key.patientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return patientId.hashCode() * 31 + vitalId;
+        }
+    }
+
+    /**
+     * Last alert sent for one patient's vital. Mutated only inside {@code compute}.
+     */
+    private static final class Suppression {
+        volatile long alertedAt;
+        volatile long touchedAt;
+        double excursion;
+    }
+
+    /**
+     * Token bucket for one recipient. Mutated only inside {@code compute}.
+     */
+    private static final class Bucket {
+        double tokens;
+        volatile long touchedAt;
+
+        Bucket(double tokens, long touchedAt) {
+            this.tokens = tokens;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
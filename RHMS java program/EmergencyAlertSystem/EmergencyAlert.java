@@ -1,12 +1,20 @@
 package emergencyalertsystem;
 
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import notifier.MessageType;
 import notifier.NotificationService;
+import templates.TemplateCatalog;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -14,10 +22,17 @@ import java.util.logging.Logger;
  */
 public class EmergencyAlert {
     private static final Logger LOGGER = Logger.getLogger(EmergencyAlert.class.getName());
+    // Shared with VitalSignStream and WardMonitor so every evaluation path is counted alike
+    static final Counter EVALUATIONS = Metrics.counter("emergency.evaluations");
+    static final Counter ALERTS = Metrics.counter("emergency.alerts");
+    static final Counter SUPPRESSED = Metrics.counter("emergency.suppressed");
+    private static final Counter TREND_ALERTS = Metrics.counter("emergency.trendAlerts");
+    private static final LatencyHistogram CHECK_LATENCY = Metrics.histogram("emergency.checkVitals");
     private final NotificationService notifier;
     private final List<VitalSignThreshold> thresholds;
-    private final String emergencyEmail;
-    private final String emergencyNumber;
+    private final ValidatedContact contact;
+    private final AlertSuppressor suppressor;
+    private final String patientId;
 
     /**
      * Sets up alert system with notifier and contacts.
@@ -28,19 +43,29 @@ public class EmergencyAlert {
      */
     public EmergencyAlert(NotificationService notifier, String emergencyEmail, String emergencyNumber)
             throws RpmsException {
+        this(notifier, emergencyEmail, emergencyNumber, null, null);
+    }
+
+    /**
+     * Sets up alert system whose alerts pass through a suppressor first.
+     * @param notifier Notification service.
+     * @param emergencyEmail Email for alerts.
+     * @param emergencyNumber Phone for alerts.
+     * @param suppressor Deduplication and rate limiting, or null to send every alert.
+     * @param patientId Patient the suppressor tracks this alert under; defaults to the emergency email.
+     * @throws RpmsException If inputs are invalid.
+     */
+    public EmergencyAlert(NotificationService notifier, String emergencyEmail, String emergencyNumber,
+            AlertSuppressor suppressor, String patientId) throws RpmsException {
         if (notifier == null) {
-            throw new RpmsException("INVALID_INPUT", "Notifier can't be null");
-        }
-        if (emergencyEmail == null || emergencyEmail.trim().isEmpty() || !emergencyEmail.matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid emergency email");
-        }
-        if (emergencyNumber == null || emergencyNumber.trim().isEmpty() || !emergencyNumber.matches("\\+?[1-9]\\d{1,14}")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid emergency phone number");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Notifier can't be null");
         }
+        this.contact = ValidatedContact.of(emergencyEmail, emergencyNumber,
+            "Invalid emergency email", "Invalid emergency phone number");
         this.notifier = notifier;
+        this.suppressor = suppressor;
+        this.patientId = patientId == null || patientId.trim().isEmpty() ? contact.getEmail() : patientId;
         this.thresholds = new ArrayList<>();
-        this.emergencyEmail = emergencyEmail;
-        this.emergencyNumber = emergencyNumber;
         initializeDefaultThreshold();
     }
 
@@ -51,10 +76,19 @@ public class EmergencyAlert {
         return notifier;
     }
     public String getEmergencyNumber() {
-        return emergencyNumber;
+        return contact.getPhone();
     }
     public String getEmergencyEmail() {
-        return emergencyEmail;
+        return contact.getEmail();
+    }
+    public ValidatedContact getEmergencyContact() {
+        return contact;
+    }
+    public AlertSuppressor getSuppressor() {
+        return suppressor;
+    }
+    public String getPatientId() {
+        return patientId;
     }
     public List<VitalSignThreshold> getThreshold() {
         return Collections.unmodifiableList(thresholds);
@@ -78,14 +112,22 @@ public class EmergencyAlert {
      */
     public void addVitalThreshold(VitalSignThreshold threshold) throws RpmsException {
         if (threshold == null) {
-            throw new RpmsException("INVALID_INPUT", "Threshold can't be null");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Threshold can't be null");
         }
         if (thresholds.stream().anyMatch(t -> t.getVitalName().equals(threshold.getVitalName()))) {
-            throw new RpmsException("DUPLICATE_VITAL", "Vital sign already exists: " + threshold.getVitalName());
+            throw new RpmsException(ErrorCode.DUPLICATE_VITAL, "Vital sign already exists: " + threshold.getVitalName());
         }
         thresholds.add(threshold);
     }
 
+    /**
+     * Opens a streaming ingestion view over the current thresholds.
+     * @return Stream that evaluates readings by interned vital id.
+     */
+    public VitalSignStream openStream() {
+        return new VitalSignStream(this, thresholds);
+    }
+
     /**
      * Checks vitals and sends alerts if needed.
      * @param heartRate Heart rate value.
@@ -96,6 +138,7 @@ public class EmergencyAlert {
      */
     public void checkVitals(double heartRate, double bloodPressure, double oxygenLevel, double temperature)
             throws RpmsException {
+        long start = System.nanoTime();
         Map<String, Double> vitals = new HashMap<>();
         vitals.put("HeartRate", heartRate);
         vitals.put("BloodPressure", bloodPressure);
@@ -105,28 +148,137 @@ public class EmergencyAlert {
         for (VitalSignThreshold threshold : thresholds) {
             Double value = vitals.get(threshold.getVitalName());
             if (value == null) {
-                LOGGER.warning("Unknown vital: " + threshold.getVitalName());
+                LOGGER.warning(() -> "Unknown vital: " + threshold.getVitalName());
                 continue;
             }
+            EVALUATIONS.increment();
             if (threshold.isCritical(value)) {
                 triggerAlert(threshold, value);
             }
         }
+        CHECK_LATENCY.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a timestamped reading for trend detection and alerts on every trend that starts.
+     * The detector is shared across patients and tracks this alert under its patient id.
+     * @param detector Trend detector.
+     * @param vitalId Interned vital id.
+     * @param timeMillis Reading time in milliseconds.
+     * @param value Reading value.
+     * @return Number of trend alerts sent.
+     * @throws RpmsException If the reading is invalid or an alert fails.
+     */
+    public int recordTrend(TrendDetector detector, int vitalId, long timeMillis, double value) throws RpmsException {
+        if (detector == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Trend detector can't be null");
+        }
+        List<TrendRule> fired = detector.record(patientId, vitalId, timeMillis, value);
+        for (TrendRule rule : fired) {
+            TrendDetector.Stats stats = detector.getStats(patientId, vitalId);
+            String alertMessage = TemplateCatalog.current().trendAlert(
+                rule.getVitalName(), stats.getSlopePerMinute(), stats.getSpanMillis() / 60000.0, rule);
+            boolean sendEmail = suppressor == null || suppressor.tryAcquire(contact.getEmail());
+            boolean sendSms = suppressor == null || suppressor.tryAcquire(contact.getPhone());
+            TREND_ALERTS.increment();
+            deliver(notifier, contact, "Trend Alert", alertMessage, sendEmail, sendSms);
+        }
+        return fired.size();
     }
 
     /**
-     * Sends alert for critical vital sign.
+     * Sends alert for critical vital sign. With a suppressor, repeats within the cooldown are
+     * dropped unless the value worsened, and each channel is skipped once its recipient is over
+     * the rate limit.
      * @param threshold Violated threshold.
      * @param currentValue Current vital value.
      * @throws RpmsException If alert fails.
      */
     public void triggerAlert(VitalSignThreshold threshold, double currentValue) throws RpmsException {
-        // Create alert message
-        String alertMessage = String.format(
-            "ALERT: Critical %s detected! Value: %.2f (Safe Range: %.2f%.2f)",
-            threshold.getVitalName(), currentValue, threshold.getMin(), threshold.getMax()
-        );
-        notifier.sendEmailAlert(emergencyEmail, "Emergency Alert", alertMessage);
-        notifier.sendSMSAlert(emergencyNumber, "Emergency Alert", alertMessage);
+        sendAlert(notifier, suppressor, patientId, contact, threshold, currentValue);
+    }
+
+    /**
+     * Sends one alert on behalf of a patient; shared with {@link WardMonitor}.
+     * @param notifier Notification service.
+     * @param suppressor Deduplication and rate limiting, or null to send every alert.
+     * @param patientId Patient the suppressor tracks the alert under.
+     * @param contact Emergency contact.
+     * @param threshold Violated threshold.
+     * @param currentValue Current vital value.
+     * @throws RpmsException If alert fails.
+     */
+    static void sendAlert(NotificationService notifier, AlertSuppressor suppressor, String patientId,
+            ValidatedContact contact, VitalSignThreshold threshold, double currentValue) throws RpmsException {
+        boolean sendEmail = true;
+        boolean sendSms = true;
+        if (suppressor != null) {
+            if (!suppressor.shouldAlert(patientId, threshold, currentValue)) {
+                SUPPRESSED.increment();
+                LOGGER.fine(() -> "Suppressed repeat alert for " + patientId + " " + threshold.getVitalName());
+                return;
+            }
+            sendEmail = suppressor.tryAcquire(contact.getEmail());
+            sendSms = suppressor.tryAcquire(contact.getPhone());
+            if (!sendEmail || !sendSms) {
+                boolean emailSent = sendEmail;
+                boolean smsSent = sendSms;
+                LOGGER.warning(() -> "Rate limit reached for " + patientId + " " + threshold.getVitalName()
+                    + " alert (email " + (emailSent ? "sent" : "dropped") + ", SMS " + (smsSent ? "sent" : "dropped") + ")");
+            }
+        }
+        ALERTS.increment();
+        String alertMessage = TemplateCatalog.current().criticalAlert(
+            threshold.getVitalName(), currentValue, threshold.getMin(), threshold.getMax());
+        deliver(notifier, contact, "Emergency Alert", alertMessage, sendEmail, sendSms);
+    }
+
+    /**
+     * Sends an alert message on the allowed channels, queued if the notifier is asynchronous.
+     * @param notifier Notification service.
+     * @param contact Emergency contact.
+     * @param subject Alert subject.
+     * @param alertMessage Alert text.
+     * @param sendEmail Whether to send by email.
+     * @param sendSms Whether to send by SMS.
+     * @throws RpmsException If a synchronous send fails.
+     */
+    private static void deliver(NotificationService notifier, ValidatedContact contact, String subject,
+            String alertMessage, boolean sendEmail, boolean sendSms) throws RpmsException {
+        if (notifier.isAsync()) {
+            // Queue both sends so evaluation never waits on SMTP
+            if (sendEmail) {
+                notifier.sendEmailAlertAsync(MessageType.EMERGENCY_ALERT, contact, subject, alertMessage)
+                    .whenComplete((ok, e) -> logAsyncFailure("Email", e));
+            }
+            if (sendSms) {
+                notifier.sendSMSAlertAsync(MessageType.EMERGENCY_ALERT, contact, subject, alertMessage)
+                    .whenComplete((ok, e) -> logAsyncFailure("SMS", e));
+            }
+            return;
+        }
+        if (sendEmail) {
+            notifier.sendEmailAlert(contact, subject, alertMessage);
+        }
+        if (sendSms) {
+            notifier.sendSMSAlert(contact, subject, alertMessage);
+        }
+    }
+
+    /**
+     * Logs a failed asynchronous alert.
+     * @param channel Channel name.
+     * @param error Failure, or null if the send succeeded.
+     */
+    private static void logAsyncFailure(String channel, Throwable error) {
+        if (error == null) {
+            return;
+        }
+        Throwable cause = error.getCause() != null && !(error instanceof RpmsException) ? error.getCause() : error;
+        if (cause instanceof RpmsException) {
+            ((RpmsException) cause).log(LOGGER);
+        } else {
+            LOGGER.log(Level.SEVERE, "{0} alert failed: {1}", new Object[] {channel, cause.getMessage()});
+        }
     }
 }
\ No newline at end of file
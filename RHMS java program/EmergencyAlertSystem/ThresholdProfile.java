@@ -0,0 +1,73 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.Arrays;
+
+/**
+ * An immutable set of thresholds indexed by {@link VitalRegistry} id.
+ * Profiles are shared between patients; changing one returns a modified copy, so every patient
+ * on the default profile points at the same instance.
+ */
+public final class ThresholdProfile {
+    private static final ThresholdProfile DEFAULTS = createDefaults();
+
+    private final VitalSignThreshold[] thresholds;
+
+    private ThresholdProfile(VitalSignThreshold[] thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Returns the shared profile with the same ranges as {@link EmergencyAlert#initializeDefaultThreshold()}.
+     * @return Default profile.
+     */
+    public static ThresholdProfile defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns a copy of this profile with one threshold added or replaced.
+     * @param threshold Threshold to set.
+     * @return New profile.
+     * @throws RpmsException If threshold is null.
+     */
+    public ThresholdProfile withThreshold(VitalSignThreshold threshold) throws RpmsException {
+        if (threshold == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Threshold can't be null");
+        }
+        int id = VitalRegistry.intern(threshold.getVitalName());
+        VitalSignThreshold[] copy = Arrays.copyOf(thresholds, Math.max(thresholds.length, id + 1));
+        copy[id] = threshold;
+        return new ThresholdProfile(copy);
+    }
+
+    /**
+     * Returns the threshold for a vital.
+     * @param vitalId Interned vital id.
+     * @return Threshold, or null if this profile has none for the vital.
+     */
+    public VitalSignThreshold getThreshold(int vitalId) {
+        return vitalId >= 0 && vitalId < thresholds.length ? thresholds[vitalId] : null;
+    }
+
+    /**
+     * Returns one past the highest vital id this profile covers.
+     * @return Id range.
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    private static ThresholdProfile createDefaults() {
+        try {
+            return new ThresholdProfile(new VitalSignThreshold[0])
+                .withThreshold(new VitalSignThreshold(60, 100, "HeartRate"))
+                .withThreshold(new VitalSignThreshold(60, 140, "BloodPressure"))
+                .withThreshold(new VitalSignThreshold(95, 100, "OxygenLevel"))
+                .withThreshold(new VitalSignThreshold(35, 38.5, "Temperature"));
+        } catch (RpmsException e) {
+            throw new IllegalStateException("Invalid default thresholds", e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks recent readings per patient and vital and detects sustained trends.
+ * <p>
+ * Each patient/vital series is a fixed-size ring buffer limited by sample count and age. Running
+ * sums give the mean, variance and least-squares slope in O(1) per reading, and an EWMA smooths
+ * single spikes. The sums are rebuilt from the buffer once per buffer length of readings, which
+ * rebases the time origin and discards accumulated rounding error at amortized O(1) cost.
+ * <p>
+ * A rule fires once when its trend appears and is re-armed only after the trend has gone away,
+ * so a long decline produces one alert rather than one per reading.
+ */
+public class TrendDetector {
+    private static final double MILLIS_PER_MINUTE = 60000.0;
+
+    private final int windowSamples;
+    private final long windowMillis;
+    private final double ewmaAlpha;
+    private final ConcurrentHashMap<String, Series[]> patients = new ConcurrentHashMap<>();
+    private volatile TrendRule[][] rulesByVital = new TrendRule[0][];
+
+    /**
+     * Sets up a detector.
+     * @param windowSamples Most readings kept per patient and vital.
+     * @param windowMillis Oldest reading kept, relative to the newest.
+     * @param ewmaAlpha Smoothing factor in (0, 1]; higher follows new readings more closely.
+     * @throws RpmsException If any setting is out of range.
+     */
+    public TrendDetector(int windowSamples, long windowMillis, double ewmaAlpha) throws RpmsException {
+        if (windowSamples < 2) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Window must hold at least 2 samples");
+        }
+        if (windowMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Window duration must be positive");
+        }
+        if (!(ewmaAlpha > 0 && ewmaAlpha <= 1)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "EWMA alpha must be in (0, 1]");
+        }
+        this.windowSamples = windowSamples;
+        this.windowMillis = windowMillis;
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    /**
+     * Adds a rule. Rules can be added while readings are being recorded.
+     * @param rule Rule to add.
+     * @throws RpmsException If rule is null or needs more samples than the window holds.
+     */
+    public synchronized void addRule(TrendRule rule) throws RpmsException {
+        if (rule == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Rule can't be null");
+        }
+        if (rule.getMinSamples() > windowSamples || rule.getMinSpanMillis() > windowMillis) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Rule doesn't fit the window: " + rule);
+        }
+        int id = rule.getVitalId();
+        TrendRule[][] rules = Arrays.copyOf(rulesByVital, Math.max(rulesByVital.length, id + 1));
+        TrendRule[] forVital = rules[id] == null ? new TrendRule[0] : rules[id];
+        if (forVital.length == Long.SIZE) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Too many rules for " + rule.getVitalName());
+        }
+        forVital = Arrays.copyOf(forVital, forVital.length + 1);
+        forVital[forVital.length - 1] = rule;
+        rules[id] = forVital;
+        rulesByVital = rules;
+    }
+
+    /**
+     * Records a reading and returns the rules that started firing because of it.
+     * @param patientId Patient identifier.
+     * @param vitalId Interned vital id.
+     * @param timeMillis Reading time; must not be earlier than the previous reading for this series.
+     * @param value Reading value.
+     * @return Newly firing rules, usually empty.
+     * @throws RpmsException If the patient id is empty, the vital id was never interned, the value is NaN, or the
+     *         time went backwards.
+     */
+    public List<TrendRule> record(String patientId, int vitalId, long timeMillis, double value) throws RpmsException {
+        if (patientId == null || patientId.trim().isEmpty()) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Patient id can't be empty");
+        }
+        // Series arrays are sized by the id, so an id never interned could claim any amount of memory
+        if (!VitalRegistry.isInterned(vitalId)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Unknown vital id: " + vitalId);
+        }
+        if (Double.isNaN(value)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Reading can't be NaN");
+        }
+        Series series = series(patientId, vitalId);
+        TrendRule[][] rules = rulesByVital;
+        TrendRule[] forVital = vitalId < rules.length && rules[vitalId] != null ? rules[vitalId] : new TrendRule[0];
+        synchronized (series) {
+            if (series.count > 0 && timeMillis < series.newestTime()) {
+                throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Reading time went backwards");
+            }
+            series.add(timeMillis, value);
+            if (forVital.length == 0) {
+                return List.of();
+            }
+            Stats stats = series.stats();
+            List<TrendRule> fired = null;
+            for (int i = 0; i < forVital.length; i++) {
+                long bit = 1L << i;
+                if (!forVital[i].matches(stats)) {
+                    series.firing &= ~bit;
+                } else if ((series.firing & bit) == 0) {
+                    series.firing |= bit;
+                    if (fired == null) {
+                        fired = new ArrayList<>(1);
+                    }
+                    fired.add(forVital[i]);
+                }
+            }
+            return fired == null ? List.of() : fired;
+        }
+    }
+
+    /**
+     * Returns the current window statistics for a patient's vital.
+     * @param patientId Patient identifier.
+     * @param vitalId Interned vital id.
+     * @return Statistics, or null if no readings were recorded.
+     */
+    public Stats getStats(String patientId, int vitalId) {
+        Series[] vitals = patients.get(patientId);
+        if (vitals == null || vitalId < 0 || vitalId >= vitals.length || vitals[vitalId] == null) {
+            return null;
+        }
+        Series series = vitals[vitalId];
+        synchronized (series) {
+            return series.count == 0 ? null : series.stats();
+        }
+    }
+
+    /**
+     * Drops all history for a patient.
+     * @param patientId Patient identifier.
+     */
+    public void forget(String patientId) {
+        patients.remove(patientId);
+    }
+
+    private Series series(String patientId, int vitalId) {
+        Series[] vitals = patients.get(patientId);
+        if (vitals == null || vitalId >= vitals.length || vitals[vitalId] == null) {
+            vitals = patients.compute(patientId, (id, current) -> {
+                Series[] grown = current == null
+                    ? new Series[Math.max(VitalRegistry.size(), vitalId + 1)]
+                    : current.length > vitalId ? current : Arrays.copyOf(current, vitalId + 1);
+                if (grown[vitalId] == null) {
+                    grown[vitalId] = new Series(windowSamples);
+                }
+                return grown;
+            });
+        }
+        return vitals[vitalId];
+    }
+
+    /**
+     * Ring buffer and running sums for one patient's vital. Guarded by its own monitor.
+     * Times inside the sums are minutes since {@code origin}.
+     */
+    private final class Series {
+        final long[] times;
+        final double[] values;
+        int head;
+        int count;
+        long origin;
+        int sinceRebuild;
+        double sumT;
+        double sumX;
+        double sumTT;
+        double sumTX;
+        double sumXX;
+        double ewma;
+        long firing;
+
+        Series(int capacity) {
+            this.times = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        long newestTime() {
+            return times[(head + count - 1) % times.length];
+        }
+
+        void add(long time, double value) {
+            if (count == 0) {
+                origin = time;
+                ewma = value;
+            } else {
+                ewma += ewmaAlpha * (value - ewma);
+            }
+            while (count == times.length || (count > 0 && time - times[head] > windowMillis)) {
+                accumulate(times[head], values[head], -1);
+                head = (head + 1) % times.length;
+                count--;
+            }
+            int tail = (head + count) % times.length;
+            times[tail] = time;
+            values[tail] = value;
+            count++;
+            accumulate(time, value, 1);
+            if (++sinceRebuild >= times.length) {
+                rebuild();
+            }
+        }
+
+        private void accumulate(long time, double value, int sign) {
+            double t = (time - origin) / MILLIS_PER_MINUTE;
+            sumT += sign * t;
+            sumX += sign * value;
+            sumTT += sign * t * t;
+            sumTX += sign * t * value;
+            sumXX += sign * value * value;
+        }
+
+        private void rebuild() {
+            origin = times[head];
+            sumT = sumX = sumTT = sumTX = sumXX = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % times.length;
+                accumulate(times[index], values[index], 1);
+            }
+            sinceRebuild = 0;
+        }
+
+        Stats stats() {
+            double mean = sumX / count;
+            double variance = Math.max(0, sumXX / count - mean * mean);
+            double denominator = count * sumTT - sumT * sumT;
+            double slope = count < 2 || denominator <= 0 ? 0 : (count * sumTX - sumT * sumX) / denominator;
+            return new Stats(count, newestTime() - times[head], mean, variance, slope, ewma);
+        }
+    }
+
+    /**
+     * Rolling statistics over one series' current window.
+     */
+    public static final class Stats {
+        private final int count;
+        private final long spanMillis;
+        private final double mean;
+        private final double variance;
+        private final double slopePerMinute;
+        private final double ewma;
+
+        Stats(int count, long spanMillis, double mean, double variance, double slopePerMinute, double ewma) {
+            this.count = count;
+            this.spanMillis = spanMillis;
+            this.mean = mean;
+            this.variance = variance;
+            this.slopePerMinute = slopePerMinute;
+            this.ewma = ewma;
+        }
+
+        /*
+         * Getter
+         */
+        public int getCount() {
+            return count;
+        }
+        public long getSpanMillis() {
+            return spanMillis;
+        }
+        public double getMean() {
+            return mean;
+        }
+        public double getVariance() {
+            return variance;
+        }
+        public double getSlopePerMinute() {
+            return slopePerMinute;
+        }
+        public double getEwma() {
+            return ewma;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+
+/**
+ * Describes a sustained trend worth alerting on, e.g. oxygen falling by at least
+ * 0.3 per minute over ten minutes.
+ */
+public final class TrendRule {
+    private final String vitalName;
+    private final int vitalId;
+    private final double slopePerMinute;
+    private final long minSpanMillis;
+    private final int minSamples;
+
+    /**
+     * Sets up a trend rule.
+     * @param vitalName Vital sign name (e.g., "OxygenLevel").
+     * @param slopePerMinute Rate of change that fires the rule; negative for a falling trend, positive for a rising one.
+     * @param minSpanMillis Shortest stretch of readings the trend must cover.
+     * @param minSamples Fewest readings the trend must be fitted over.
+     * @throws RpmsException If the name is empty, the slope is zero or NaN, or the span or sample count is too small.
+     */
+    public TrendRule(String vitalName, double slopePerMinute, long minSpanMillis, int minSamples) throws RpmsException {
+        if (vitalName == null || vitalName.trim().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Vital name can't be empty");
+        }
+        if (slopePerMinute == 0 || Double.isNaN(slopePerMinute)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Trend slope must be non-zero");
+        }
+        if (minSpanMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Trend span must be positive");
+        }
+        if (minSamples < 2) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "A trend needs at least 2 samples");
+        }
+        this.vitalName = vitalName;
+        this.vitalId = VitalRegistry.intern(vitalName);
+        this.slopePerMinute = slopePerMinute;
+        this.minSpanMillis = minSpanMillis;
+        this.minSamples = minSamples;
+    }
+
+    /*
+     * Getter
+     */
+    public String getVitalName() {
+        return vitalName;
+    }
+    public int getVitalId() {
+        return vitalId;
+    }
+    public double getSlopePerMinute() {
+        return slopePerMinute;
+    }
+    public long getMinSpanMillis() {
+        return minSpanMillis;
+    }
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * Checks whether window statistics show this trend.
+     * @param stats Rolling statistics for the rule's vital.
+     * @return True if the trend is present.
+     */
+    public boolean matches(TrendDetector.Stats stats) {
+        if (stats.getCount() < minSamples || stats.getSpanMillis() < minSpanMillis) {
+            return false;
+        }
+        double slope = stats.getSlopePerMinute();
+        return slopePerMinute < 0 ? slope <= slopePerMinute : slope >= slopePerMinute;
+    }
+
+    @Override
+    public String toString() {
+        return vitalName + (slopePerMinute < 0 ? " falling " : " rising ") + Math.abs(slopePerMinute)
+            + "/min over " + minSpanMillis / 60000.0 + " min";
+    }
+}
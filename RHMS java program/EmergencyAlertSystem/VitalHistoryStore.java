@@ -0,0 +1,638 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Off-heap history of vital readings, one memory-mapped column file per vital.
+ * <p>
+ * Each file is a sequence of fixed-size blocks, and each block holds a run of one patient's
+ * readings compressed the way Gorilla does it: timestamps as delta-of-deltas in variable-width
+ * buckets, values as the XOR with the previous value, storing only the meaningful bits. A block
+ * header links to the patient's previous block and records its time range, so range scans walk
+ * back from the newest block and stop as soon as they pass the start of the range.
+ * <p>
+ * Block layout: {@code [long previous][int patient+1][int count][long firstTime][long lastTime]
+ * [int bits][padding]} followed by the bit stream. The count and bit length are written after
+ * the bits they cover, so a crash loses at most the reading being appended. The heap holds only
+ * the encoder state of each series; queries decode straight from the mapped files into callbacks.
+ * <p>
+ * Patient ids are stored once, in {@code patients.dict}, and referred to by number in the blocks.
+ */
+public class VitalHistoryStore implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(VitalHistoryStore.class.getName());
+    private static final int BLOCK_BYTES = 256;
+    private static final int HEADER_BYTES = 40;
+    private static final int PAYLOAD_BITS = (BLOCK_BYTES - HEADER_BYTES) * 8;
+    // Largest encoding of one reading: 4 + 64 timestamp bits and 2 + 5 + 6 + 64 value bits
+    private static final int MAX_POINT_BITS = 145;
+    private static final int REGION_BYTES = 16 * 1024 * 1024;
+    private static final String SUFFIX = ".col";
+    private static final String DICTIONARY = "patients.dict";
+
+    private static final int PREVIOUS = 0;
+    private static final int PATIENT = 8;
+    private static final int COUNT = 12;
+    private static final int FIRST_TIME = 16;
+    private static final int LAST_TIME = 24;
+    private static final int BITS = 32;
+
+    /**
+     * Receives readings from a range scan.
+     */
+    @FunctionalInterface
+    public interface ReadingConsumer {
+        void accept(long timeMillis, double value);
+    }
+
+    /**
+     * Receives aggregated buckets from a downsampled query.
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long bucketStart, int count, double min, double max, double mean);
+    }
+
+    private final Path directory;
+    private final FileChannel dictionary;
+    private final ConcurrentHashMap<String, Integer> patientKeys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Series> series = new ConcurrentHashMap<>();
+    private volatile ColumnFile[] columns = new ColumnFile[0];
+    private volatile boolean closed;
+
+    /**
+     * Opens or creates a store in a directory, recovering any existing column files.
+     * @param directory Directory holding the column files.
+     * @throws IOException If the directory or files cannot be read.
+     */
+    public VitalHistoryStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        Path dictionaryPath = directory.resolve(DICTIONARY);
+        this.dictionary = FileChannel.open(dictionaryPath, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadDictionary(dictionaryPath);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                recover(VitalRegistry.intern(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+    }
+
+    /**
+     * Appends a reading to a patient's history.
+     * @param patientId Patient identifier.
+     * @param vitalId Interned vital id.
+     * @param timeMillis Reading time; must not be earlier than the patient's previous reading of this vital.
+     * @param value Reading value.
+     * @throws IOException If the column file cannot be extended.
+     * @throws RpmsException If the patient or vital id is invalid, the time went backwards, or the store is closed.
+     */
+    public void append(String patientId, int vitalId, long timeMillis, double value) throws IOException, RpmsException {
+        if (patientId == null || patientId.trim().isEmpty()) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Patient id can't be empty");
+        }
+        if (vitalId < 0 || vitalId >= VitalRegistry.size()) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid vital id: " + vitalId);
+        }
+        if (closed) {
+            throw new RpmsException(ErrorCode.STORE_CLOSED, "Vital history store is closed");
+        }
+        int patient = patientKey(patientId);
+        ColumnFile column = column(vitalId);
+        Series s = series.computeIfAbsent(seriesKey(patient, vitalId), key -> new Series());
+        synchronized (s) {
+            if (s.count > 0 && timeMillis < s.lastTime) {
+                throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Reading time went backwards");
+            }
+            if (s.count == 0 || s.bits + MAX_POINT_BITS > PAYLOAD_BITS) {
+                startBlock(column, s, patient, timeMillis, value);
+            } else {
+                appendPoint(column.buffer(s.block), (int) (s.block % REGION_BYTES), s, timeMillis, value);
+            }
+        }
+    }
+
+    /**
+     * Streams a patient's readings within a time range, oldest first.
+     * @param patientId Patient identifier.
+     * @param vitalId Interned vital id.
+     * @param fromMillis Start of the range, inclusive.
+     * @param toMillis End of the range, inclusive.
+     * @param consumer Receives each reading.
+     * @return Number of readings passed to the consumer.
+     */
+    public int scan(String patientId, int vitalId, long fromMillis, long toMillis, ReadingConsumer consumer) {
+        Integer patient = patientKeys.get(patientId);
+        Series s = patient == null ? null : series.get(seriesKey(patient, vitalId));
+        if (s == null) {
+            return 0;
+        }
+        ColumnFile column = columns[vitalId];
+        int emitted = 0;
+        synchronized (s) {
+            long[] blocks = blocksInRange(column, s.head, fromMillis, toMillis);
+            Decoder decoder = new Decoder();
+            for (int i = blocks.length - 1; i >= 0; i--) {
+                decoder.open(column.buffer(blocks[i]), (int) (blocks[i] % REGION_BYTES));
+                while (decoder.next()) {
+                    if (decoder.time > toMillis) {
+                        return emitted;
+                    }
+                    if (decoder.time >= fromMillis) {
+                        consumer.accept(decoder.time, decoder.value);
+                        emitted++;
+                    }
+                }
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * Aggregates a patient's readings within a time range into fixed-width buckets.
+     * Empty buckets are skipped.
+     * @param patientId Patient identifier.
+     * @param vitalId Interned vital id.
+     * @param fromMillis Start of the range, inclusive; buckets are aligned to it.
+     * @param toMillis End of the range, inclusive.
+     * @param bucketMillis Bucket width.
+     * @param consumer Receives each non-empty bucket.
+     * @return Number of buckets passed to the consumer.
+     * @throws RpmsException If the bucket width is not positive.
+     */
+    public int downsample(String patientId, int vitalId, long fromMillis, long toMillis, long bucketMillis,
+            BucketConsumer consumer) throws RpmsException {
+        if (bucketMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Bucket width must be positive");
+        }
+        double[] acc = new double[3];
+        long[] bucket = {Long.MIN_VALUE, 0};
+        int[] buckets = new int[1];
+        scan(patientId, vitalId, fromMillis, toMillis, (time, value) -> {
+            long start = fromMillis + (time - fromMillis) / bucketMillis * bucketMillis;
+            if (start != bucket[0]) {
+                if (bucket[1] > 0) {
+                    consumer.accept(bucket[0], (int) bucket[1], acc[0], acc[1], acc[2] / bucket[1]);
+                    buckets[0]++;
+                }
+                bucket[0] = start;
+                bucket[1] = 0;
+                acc[0] = Double.POSITIVE_INFINITY;
+                acc[1] = Double.NEGATIVE_INFINITY;
+                acc[2] = 0;
+            }
+            bucket[1]++;
+            acc[0] = Math.min(acc[0], value);
+            acc[1] = Math.max(acc[1], value);
+            acc[2] += value;
+        });
+        if (bucket[1] > 0) {
+            consumer.accept(bucket[0], (int) bucket[1], acc[0], acc[1], acc[2] / bucket[1]);
+            buckets[0]++;
+        }
+        return buckets[0];
+    }
+
+    /**
+     * Forces all mapped column data to disk.
+     */
+    public void flush() {
+        for (ColumnFile column : columns) {
+            if (column != null) {
+                column.force();
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes all files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ColumnFile column : columns) {
+            if (column != null) {
+                synchronized (column) {
+                    column.force();
+                    column.channel.close();
+                }
+            }
+        }
+        dictionary.close();
+    }
+
+    private static long seriesKey(int patient, int vitalId) {
+        return ((long) patient << 16) | vitalId;
+    }
+
+    /**
+     * Returns the number assigned to a patient, writing new patients to the dictionary first
+     * so every number that appears in a block can be resolved after a restart.
+     */
+    private int patientKey(String patientId) throws IOException {
+        Integer key = patientKeys.get(patientId);
+        if (key != null) {
+            return key;
+        }
+        synchronized (patientKeys) {
+            key = patientKeys.get(patientId);
+            if (key != null) {
+                return key;
+            }
+            byte[] name = patientId.getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Patient id too long");
+            }
+            ByteBuffer entry = ByteBuffer.allocate(2 + name.length).putShort((short) name.length).put(name).flip();
+            long end = dictionary.size();
+            while (entry.hasRemaining()) {
+                end += dictionary.write(entry, end);
+            }
+            dictionary.force(false);
+            key = patientKeys.size();
+            patientKeys.put(patientId, key);
+            return key;
+        }
+    }
+
+    private void loadDictionary(Path path) throws IOException {
+        long valid = 0;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length = in.readUnsignedShort();
+                byte[] name = new byte[length];
+                in.readFully(name);
+                patientKeys.put(new String(name, StandardCharsets.UTF_8), patientKeys.size());
+                valid += 2 + length;
+            }
+        } catch (EOFException e) {
+            // End of the dictionary, possibly with a torn last entry
+        }
+        if (valid < dictionary.size()) {
+            LOGGER.log(Level.WARNING, "Truncating torn patient dictionary entry in {0}", path);
+            dictionary.truncate(valid);
+        }
+    }
+
+    private ColumnFile column(int vitalId) throws IOException {
+        ColumnFile[] current = columns;
+        if (vitalId < current.length && current[vitalId] != null) {
+            return current[vitalId];
+        }
+        synchronized (this) {
+            current = columns;
+            if (vitalId < current.length && current[vitalId] != null) {
+                return current[vitalId];
+            }
+            ColumnFile[] grown = Arrays.copyOf(current, Math.max(current.length, vitalId + 1));
+            grown[vitalId] = new ColumnFile(directory.resolve(VitalRegistry.nameOf(vitalId) + SUFFIX));
+            columns = grown;
+            return grown[vitalId];
+        }
+    }
+
+    /**
+     * Rebuilds the series heads of a column by scanning its block headers, then restores each
+     * head's encoder state by decoding that one block.
+     */
+    private void recover(int vitalId) throws IOException {
+        ColumnFile column = column(vitalId);
+        long end = 0;
+        List<Long> touched = new ArrayList<>();
+        for (long offset = 0; offset < column.mappedBytes(); offset += BLOCK_BYTES) {
+            MappedByteBuffer buffer = column.buffer(offset);
+            int base = (int) (offset % REGION_BYTES);
+            int patient = buffer.getInt(base + PATIENT) - 1;
+            if (patient < 0) {
+                // Allocated but never written before a crash; later blocks may still hold data
+                continue;
+            }
+            end = offset + BLOCK_BYTES;
+            if (buffer.getInt(base + COUNT) > 0) {
+                long key = seriesKey(patient, vitalId);
+                Series s = series.computeIfAbsent(key, k -> new Series());
+                if (s.count == 0 || offset > s.head) {
+                    s.head = offset;
+                    s.count = 1;
+                    touched.add(key);
+                }
+            }
+        }
+        column.next = end;
+        Decoder decoder = new Decoder();
+        for (long key : touched) {
+            Series s = series.get(key);
+            decoder.open(column.buffer(s.head), (int) (s.head % REGION_BYTES));
+            while (decoder.next()) {
+                // Decode to the end to pick up the encoder state
+            }
+            s.block = s.head;
+            s.count = decoder.count;
+            s.bits = decoder.bits;
+            s.lastTime = decoder.time;
+            s.lastDelta = decoder.delta;
+            s.lastBits = Double.doubleToRawLongBits(decoder.value);
+            s.leading = decoder.leading;
+            s.trailing = decoder.trailing;
+        }
+        if (!touched.isEmpty()) {
+            LOGGER.log(Level.INFO, "Recovered {0} series from {1}", new Object[] {touched.size(), column.path});
+        }
+    }
+
+    /**
+     * Lists the blocks of a series that may overlap a range, newest first.
+     */
+    private static long[] blocksInRange(ColumnFile column, long head, long fromMillis, long toMillis) {
+        long[] blocks = new long[8];
+        int size = 0;
+        long offset = head;
+        while (offset >= 0) {
+            MappedByteBuffer buffer = column.buffer(offset);
+            int base = (int) (offset % REGION_BYTES);
+            if (buffer.getLong(base + LAST_TIME) < fromMillis) {
+                break;
+            }
+            if (buffer.getLong(base + FIRST_TIME) <= toMillis) {
+                if (size == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, size * 2);
+                }
+                blocks[size++] = offset;
+            }
+            offset = buffer.getLong(base + PREVIOUS);
+        }
+        return Arrays.copyOf(blocks, size);
+    }
+
+    /**
+     * Allocates a block for a series and writes its first reading as a raw value.
+     */
+    private static void startBlock(ColumnFile column, Series s, int patient, long time, double value)
+            throws IOException {
+        long offset = column.allocate();
+        MappedByteBuffer buffer = column.buffer(offset);
+        int base = (int) (offset % REGION_BYTES);
+        long bits = Double.doubleToRawLongBits(value);
+        buffer.putLong(base + PREVIOUS, s.count == 0 ? -1 : s.head);
+        buffer.putLong(base + FIRST_TIME, time);
+        buffer.putInt(base + PATIENT, patient + 1);
+        writeBits(buffer, base, 0, bits, 64);
+        buffer.putLong(base + LAST_TIME, time);
+        buffer.putInt(base + BITS, 64);
+        buffer.putInt(base + COUNT, 1);
+        s.head = offset;
+        s.block = offset;
+        s.count = 1;
+        s.bits = 64;
+        s.lastTime = time;
+        s.lastDelta = 0;
+        s.lastBits = bits;
+        s.leading = -1;
+        s.trailing = 0;
+    }
+
+    /**
+     * Appends one reading to a series' current block.
+     */
+    private static void appendPoint(MappedByteBuffer buffer, int base, Series s, long time, double value) {
+        int pos = s.bits;
+        long delta = time - s.lastTime;
+        long dod = delta - s.lastDelta;
+        if (dod == 0) {
+            pos = writeBits(buffer, base, pos, 0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            pos = writeBits(buffer, base, pos, 0b10, 2);
+            pos = writeBits(buffer, base, pos, dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            pos = writeBits(buffer, base, pos, 0b110, 3);
+            pos = writeBits(buffer, base, pos, dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            pos = writeBits(buffer, base, pos, 0b1110, 4);
+            pos = writeBits(buffer, base, pos, dod, 12);
+        } else {
+            pos = writeBits(buffer, base, pos, 0b1111, 4);
+            pos = writeBits(buffer, base, pos, dod, 64);
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        long xor = bits ^ s.lastBits;
+        if (xor == 0) {
+            pos = writeBits(buffer, base, pos, 0, 1);
+        } else {
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (s.leading >= 0 && leading >= s.leading && trailing >= s.trailing) {
+                pos = writeBits(buffer, base, pos, 0b10, 2);
+                pos = writeBits(buffer, base, pos, xor >>> s.trailing, 64 - s.leading - s.trailing);
+            } else {
+                int length = 64 - leading - trailing;
+                pos = writeBits(buffer, base, pos, 0b11, 2);
+                pos = writeBits(buffer, base, pos, leading, 5);
+                // A length of 64 is stored as 0
+                pos = writeBits(buffer, base, pos, length & 63, 6);
+                pos = writeBits(buffer, base, pos, xor >>> trailing, length);
+                s.leading = leading;
+                s.trailing = trailing;
+            }
+        }
+        buffer.putLong(base + LAST_TIME, time);
+        buffer.putInt(base + BITS, pos);
+        buffer.putInt(base + COUNT, s.count + 1);
+        s.count++;
+        s.bits = pos;
+        s.lastTime = time;
+        s.lastDelta = delta;
+        s.lastBits = bits;
+    }
+
+    /**
+     * Writes the low {@code count} bits of a value, most significant first, at a bit position in a block.
+     * @return Bit position after the value.
+     */
+    private static int writeBits(MappedByteBuffer buffer, int base, int pos, long value, int count) {
+        while (count > 0) {
+            int index = base + HEADER_BYTES + (pos >>> 3);
+            int free = 8 - (pos & 7);
+            int take = Math.min(free, count);
+            int shift = free - take;
+            int mask = ((1 << take) - 1) << shift;
+            int bits = (int) (value >>> (count - take)) << shift & mask;
+            buffer.put(index, (byte) ((buffer.get(index) & ~mask) | bits));
+            pos += take;
+            count -= take;
+        }
+        return pos;
+    }
+
+    /**
+     * Encoder state of one patient's vital; everything else lives in the mapped blocks.
+     * Guarded by its own monitor.
+     */
+    private static final class Series {
+        long head;
+        long block;
+        int count;
+        int bits;
+        long lastTime;
+        long lastDelta;
+        long lastBits;
+        int leading = -1;
+        int trailing;
+    }
+
+    /**
+     * Walks the readings of one block, keeping the same state the encoder did.
+     */
+    private static final class Decoder {
+        MappedByteBuffer buffer;
+        int base;
+        int total;
+        int count;
+        int bits;
+        long time;
+        long delta;
+        double value;
+        int leading;
+        int trailing;
+
+        void open(MappedByteBuffer buffer, int base) {
+            this.buffer = buffer;
+            this.base = base;
+            this.total = buffer.getInt(base + COUNT);
+            this.count = 0;
+            this.bits = 0;
+        }
+
+        boolean next() {
+            if (count == total) {
+                return false;
+            }
+            if (count == 0) {
+                time = buffer.getLong(base + FIRST_TIME);
+                delta = 0;
+                value = Double.longBitsToDouble(read(64));
+                leading = -1;
+                trailing = 0;
+                count++;
+                return true;
+            }
+            long dod;
+            if (read(1) == 0) {
+                dod = 0;
+            } else if (read(1) == 0) {
+                dod = signed(read(7), 7);
+            } else if (read(1) == 0) {
+                dod = signed(read(9), 9);
+            } else if (read(1) == 0) {
+                dod = signed(read(12), 12);
+            } else {
+                dod = read(64);
+            }
+            delta += dod;
+            time += delta;
+            if (read(1) == 1) {
+                if (read(1) == 1) {
+                    leading = (int) read(5);
+                    int length = (int) read(6);
+                    length = length == 0 ? 64 : length;
+                    trailing = 64 - leading - length;
+                }
+                long xor = read(64 - leading - trailing) << trailing;
+                value = Double.longBitsToDouble(Double.doubleToRawLongBits(value) ^ xor);
+            }
+            count++;
+            return true;
+        }
+
+        private long read(int count) {
+            long result = 0;
+            while (count > 0) {
+                int current = buffer.get(base + HEADER_BYTES + (bits >>> 3)) & 0xFF;
+                int available = 8 - (bits & 7);
+                int take = Math.min(available, count);
+                int chunk = (current >>> (available - take)) & ((1 << take) - 1);
+                result = (result << take) | chunk;
+                bits += take;
+                count -= take;
+            }
+            return result;
+        }
+
+        private static long signed(long value, int width) {
+            return (value << (64 - width)) >> (64 - width);
+        }
+    }
+
+    /**
+     * One vital's column file, mapped in fixed-size regions as it grows.
+     */
+    private static final class ColumnFile {
+        final Path path;
+        final FileChannel channel;
+        volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+        long next;
+
+        ColumnFile(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            int count = (int) ((size + REGION_BYTES - 1) / REGION_BYTES);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * REGION_BYTES, REGION_BYTES);
+            }
+            regions = mapped;
+        }
+
+        long mappedBytes() {
+            return (long) regions.length * REGION_BYTES;
+        }
+
+        MappedByteBuffer buffer(long offset) {
+            return regions[(int) (offset / REGION_BYTES)];
+        }
+
+        synchronized long allocate() throws IOException {
+            long offset = next;
+            if (offset + BLOCK_BYTES > mappedBytes()) {
+                MappedByteBuffer[] grown = Arrays.copyOf(regions, regions.length + 1);
+                grown[regions.length] = channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes(), REGION_BYTES);
+                regions = grown;
+            }
+            next = offset + BLOCK_BYTES;
+            return offset;
+        }
+
+        synchronized void force() {
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+        }
+    }
+}
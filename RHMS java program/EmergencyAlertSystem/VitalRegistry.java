@@ -0,0 +1,85 @@
+package emergencyalertsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns vital sign names to small integer ids so hot paths can index arrays instead of comparing strings.
+ */
+public final class VitalRegistry {
+    public static final int HEART_RATE = 0;
+    public static final int BLOOD_PRESSURE = 1;
+    public static final int OXYGEN_LEVEL = 2;
+    public static final int TEMPERATURE = 3;
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    static {
+        intern("HeartRate");
+        intern("BloodPressure");
+        intern("OxygenLevel");
+        intern("Temperature");
+    }
+
+    private VitalRegistry() {
+    }
+
+    /**
+     * Returns the id for a vital name, assigning the next free id on first use.
+     * @param vitalName Vital sign name.
+     * @return Interned id.
+     */
+    public static int intern(String vitalName) {
+        Integer id = IDS.get(vitalName);
+        if (id != null) {
+            return id;
+        }
+        synchronized (NAMES) {
+            return IDS.computeIfAbsent(vitalName, name -> {
+                NAMES.add(name);
+                return NAMES.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Looks up the id for a vital name without assigning one.
+     * @param vitalName Vital sign name.
+     * @return Interned id, or -1 if the name was never interned.
+     */
+    public static int idOf(String vitalName) {
+        Integer id = IDS.get(vitalName);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the name for an interned id.
+     * @param id Interned id.
+     * @return Vital sign name.
+     */
+    public static String nameOf(int id) {
+        synchronized (NAMES) {
+            return NAMES.get(id);
+        }
+    }
+
+    /**
+     * Checks whether an id was handed out by {@link #intern}.
+     * @param id Candidate id.
+     * @return True if the id names an interned vital.
+     */
+    public static boolean isInterned(int id) {
+        return id >= 0 && id < size();
+    }
+
+    /**
+     * Returns how many vital names have been interned so far.
+     * @return Number of ids in use.
+     */
+    public static int size() {
+        return IDS.size();
+    }
+}
@@ -0,0 +1,110 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming ingestion mode for {@link EmergencyAlert}.
+ * Thresholds are copied into primitive min/max arrays indexed by {@link VitalRegistry} id, so
+ * readings that stay in range are evaluated without boxing, maps, or string comparisons.
+ * A stream is a snapshot: thresholds added to the alert afterwards need a new stream.
+ */
+public class VitalSignStream {
+    private final EmergencyAlert alert;
+    private final VitalSignThreshold[] thresholds;
+    private final double[] min;
+    private final double[] max;
+
+    /**
+     * Builds the primitive threshold tables from the alert's current thresholds.
+     * @param alert Alert used to send notifications for critical readings.
+     * @param source Thresholds to snapshot.
+     */
+    VitalSignStream(EmergencyAlert alert, List<VitalSignThreshold> source) {
+        this.alert = alert;
+        int size = VitalRegistry.size();
+        for (VitalSignThreshold threshold : source) {
+            size = Math.max(size, VitalRegistry.intern(threshold.getVitalName()) + 1);
+        }
+        this.thresholds = new VitalSignThreshold[size];
+        this.min = new double[size];
+        this.max = new double[size];
+        // Vitals without a threshold never alert
+        Arrays.fill(min, Double.NEGATIVE_INFINITY);
+        Arrays.fill(max, Double.POSITIVE_INFINITY);
+        for (VitalSignThreshold threshold : source) {
+            int id = VitalRegistry.intern(threshold.getVitalName());
+            thresholds[id] = threshold;
+            min[id] = threshold.getMin();
+            max[id] = threshold.getMax();
+        }
+    }
+
+    /**
+     * Evaluates a single reading.
+     * @param vitalId Interned vital id.
+     * @param value Reading value.
+     * @return True if the reading was critical and an alert was sent.
+     * @throws RpmsException If the id is invalid or the alert fails.
+     */
+    public boolean ingest(int vitalId, double value) throws RpmsException {
+        EmergencyAlert.EVALUATIONS.increment();
+        return alertIfCritical(vitalId, value);
+    }
+
+    private boolean alertIfCritical(int vitalId, double value) throws RpmsException {
+        // Ids interned after the snapshot was taken are as unknown to this stream as negative ones
+        if (vitalId < 0 || vitalId >= min.length) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid vital id: " + vitalId);
+        }
+        if (!isCritical(vitalId, value)) {
+            return false;
+        }
+        alert.triggerAlert(thresholds[vitalId], value);
+        return true;
+    }
+
+    /**
+     * Evaluates a batch of readings stored as parallel id/value arrays.
+     * @param vitalIds Interned vital ids.
+     * @param values Reading values.
+     * @param offset First reading to evaluate.
+     * @param length Number of readings to evaluate.
+     * @return Number of alerts sent.
+     * @throws RpmsException If the batch bounds or an id are invalid, or an alert fails.
+     */
+    public int ingestBatch(int[] vitalIds, double[] values, int offset, int length) throws RpmsException {
+        if (vitalIds == null || values == null) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Batch arrays can't be null");
+        }
+        // Compared by subtraction so a large offset + length can't overflow past the check
+        if (offset < 0 || length < 0 || length > vitalIds.length - offset || length > values.length - offset) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Batch bounds out of range");
+        }
+        EmergencyAlert.EVALUATIONS.add(length);
+        int alerts = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int id = vitalIds[i];
+            if (id >= 0 && id < min.length && !isCritical(id, values[i])) {
+                continue;
+            }
+            if (alertIfCritical(id, values[i])) {
+                alerts++;
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Checks a reading against the snapshot without sending anything.
+     * @param vitalId Interned vital id.
+     * @param value Reading value.
+     * @return True if the value is outside the safe range.
+     */
+    public boolean isCritical(int vitalId, double value) {
+        return vitalId >= 0 && vitalId < min.length && (value < min[vitalId] || value > max[vitalId]);
+    }
+}
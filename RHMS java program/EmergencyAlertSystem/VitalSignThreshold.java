@@ -0,0 +1,54 @@
+package emergencyalertsystem;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+
+/**
+ * Holds the safe range for one vital sign.
+ */
+public class VitalSignThreshold {
+    private final double min;
+    private final double max;
+    private final String vitalName;
+
+    /**
+     * Sets up a threshold for a vital sign.
+     * @param min Lowest safe value.
+     * @param max Highest safe value.
+     * @param vitalName Vital sign name (e.g., "HeartRate").
+     * @throws RpmsException If the name is empty or the range is invalid.
+     */
+    public VitalSignThreshold(double min, double max, String vitalName) throws RpmsException {
+        if (vitalName == null || vitalName.trim().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Vital name can't be empty");
+        }
+        if (Double.isNaN(min) || Double.isNaN(max) || min > max) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Invalid range for " + vitalName);
+        }
+        this.min = min;
+        this.max = max;
+        this.vitalName = vitalName;
+    }
+
+    /*
+     * Getter
+     */
+    public double getMin() {
+        return min;
+    }
+    public double getMax() {
+        return max;
+    }
+    public String getVitalName() {
+        return vitalName;
+    }
+
+    /**
+     * Checks if a value is outside the safe range.
+     * @param value Current vital value.
+     * @return True if critical, false otherwise.
+     */
+    public boolean isCritical(double value) {
+        return value < min || value > max;
+    }
+}
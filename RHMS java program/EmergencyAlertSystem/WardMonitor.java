@@ -0,0 +1,500 @@
+package emergencyalertsystem;
+
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import notifier.NotificationService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Monitors a whole ward of patients with one object instead of one {@link EmergencyAlert} each.
+ * <p>
+ * Every patient gets a slot. Thresholds are stored column by column: {@code min[vital][slot]} and
+ * {@code max[vital][slot]}, so a ward pass walks each vital as a tight loop over parallel double
+ * arrays that the JIT can vectorize. Free slots and vitals a profile leaves out hold an infinite
+ * range and never alert. Each patient also keeps a reference to its {@link ThresholdProfile},
+ * which is shared until the patient's thresholds are changed.
+ * <p>
+ * Readings are passed the same way, as {@code readings[vital][slot]}; size each column with
+ * {@link #slotRange()}. Evaluations run concurrently with each other; admitting, discharging and
+ * changing thresholds wait for running evaluations to finish. Alerts are sent only after a pass
+ * completes, so slow notification channels never stall the scan.
+ */
+public class WardMonitor {
+    private static final Logger LOGGER = Logger.getLogger(WardMonitor.class.getName());
+    // Readings are scanned in blocks; only blocks with a critical value are rescanned for details
+    private static final int BLOCK = 256;
+    // Slots per fork-join leaf; large enough that task overhead stays small next to the scan
+    private static final int SPLIT_SLOTS = 16 * 1024;
+
+    private final NotificationService notifier;
+    private final AlertSuppressor suppressor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private String[] patientIds;
+    private ValidatedContact[] contacts;
+    private ThresholdProfile[] profiles;
+    private double[][] min = new double[0][];
+    private double[][] max = new double[0][];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotRange;
+
+    /**
+     * Sets up an empty ward.
+     * @param notifier Notification service.
+     * @param suppressor Deduplication and rate limiting, or null to send every alert.
+     * @param expectedPatients Initial slot capacity; the ward grows past it as needed.
+     * @throws RpmsException If notifier is null or expectedPatients is negative.
+     */
+    public WardMonitor(NotificationService notifier, AlertSuppressor suppressor, int expectedPatients)
+            throws RpmsException {
+        if (notifier == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Notifier can't be null");
+        }
+        if (expectedPatients < 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Expected patients can't be negative");
+        }
+        this.notifier = notifier;
+        this.suppressor = suppressor;
+        int capacity = Math.max(16, expectedPatients);
+        this.patientIds = new String[capacity];
+        this.contacts = new ValidatedContact[capacity];
+        this.profiles = new ThresholdProfile[capacity];
+        ensureColumns(VitalRegistry.size());
+    }
+
+    /**
+     * Admits a patient on the default threshold profile.
+     * @param patientId Patient identifier.
+     * @param emergencyEmail Email for alerts.
+     * @param emergencyNumber Phone for alerts.
+     * @return Slot the patient's readings go in.
+     * @throws RpmsException If inputs are invalid or the patient is already admitted.
+     */
+    public int admit(String patientId, String emergencyEmail, String emergencyNumber) throws RpmsException {
+        return admit(patientId, emergencyEmail, emergencyNumber, ThresholdProfile.defaults());
+    }
+
+    /**
+     * Admits a patient with a given threshold profile.
+     * @param patientId Patient identifier.
+     * @param emergencyEmail Email for alerts.
+     * @param emergencyNumber Phone for alerts.
+     * @param profile Threshold profile.
+     * @return Slot the patient's readings go in.
+     * @throws RpmsException If inputs are invalid or the patient is already admitted.
+     */
+    public int admit(String patientId, String emergencyEmail, String emergencyNumber, ThresholdProfile profile)
+            throws RpmsException {
+        if (patientId == null || patientId.trim().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Patient id can't be empty");
+        }
+        if (profile == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Profile can't be null");
+        }
+        ValidatedContact contact = ValidatedContact.of(emergencyEmail, emergencyNumber,
+            "Invalid emergency email", "Invalid emergency phone number");
+        lock.writeLock().lock();
+        try {
+            if (slots.containsKey(patientId)) {
+                throw new RpmsException(ErrorCode.DUPLICATE_PATIENT, "Patient already admitted: " + patientId);
+            }
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : slotRange++;
+            if (slot == patientIds.length) {
+                grow(slot * 2);
+            }
+            patientIds[slot] = patientId;
+            contacts[slot] = contact;
+            applyProfile(slot, profile);
+            slots.put(patientId, slot);
+            return slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discharges a patient. The slot is reused by a later admission.
+     * @param patientId Patient identifier.
+     * @return True if the patient was admitted.
+     */
+    public boolean discharge(String patientId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(patientId);
+            if (slot == null) {
+                return false;
+            }
+            patientIds[slot] = null;
+            contacts[slot] = null;
+            profiles[slot] = null;
+            for (int vital = 0; vital < min.length; vital++) {
+                min[vital][slot] = Double.NEGATIVE_INFINITY;
+                max[vital][slot] = Double.POSITIVE_INFINITY;
+            }
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces a patient's threshold profile.
+     * @param patientId Patient identifier.
+     * @param profile New profile.
+     * @throws RpmsException If the profile is null or the patient is not admitted.
+     */
+    public void setProfile(String patientId, ThresholdProfile profile) throws RpmsException {
+        if (profile == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Profile can't be null");
+        }
+        lock.writeLock().lock();
+        try {
+            applyProfile(requireSlot(patientId), profile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets one threshold for a single patient, copying its profile so other patients are unaffected.
+     * @param patientId Patient identifier.
+     * @param threshold Threshold to add or replace.
+     * @throws RpmsException If the threshold is null or the patient is not admitted.
+     */
+    public void setThreshold(String patientId, VitalSignThreshold threshold) throws RpmsException {
+        lock.writeLock().lock();
+        try {
+            int slot = requireSlot(patientId);
+            applyProfile(slot, profiles[slot].withThreshold(threshold));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a patient's current threshold profile.
+     * @param patientId Patient identifier.
+     * @return Profile, or null if the patient is not admitted.
+     */
+    public ThresholdProfile getProfile(String patientId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(patientId);
+            return slot != null ? profiles[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the slot a patient's readings go in.
+     * @param patientId Patient identifier.
+     * @return Slot, or -1 if the patient is not admitted.
+     */
+    public int slotOf(String patientId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(patientId);
+            return slot != null ? slot : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of admitted patients.
+     * @return Patient count.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one past the highest slot ever assigned; reading columns must be at least this long.
+     * @return Slot range.
+     */
+    public int slotRange() {
+        lock.readLock().lock();
+        try {
+            return slotRange;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates a whole ward's readings and sends an alert for every critical one.
+     * A failed alert is logged and does not stop the rest of the ward from being alerted.
+     * @param readings Readings indexed {@code [vitalId][slot]}; a null column means the vital was not sampled.
+     * @return Number of critical readings found.
+     * @throws RpmsException If readings is null, or a column is at an id never interned or shorter than
+     *         {@link #slotRange()}.
+     */
+    public int evaluate(double[][] readings) throws RpmsException {
+        if (readings == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Readings can't be null");
+        }
+        List<Alert> alerts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkColumns(readings);
+            for (int vital = 0; vital < readings.length && vital < min.length; vital++) {
+                if (readings[vital] != null) {
+                    scan(vital, readings[vital], 0, slotRange, alerts);
+                    EmergencyAlert.EVALUATIONS.add(slotRange);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return send(alerts);
+    }
+
+    /**
+     * Evaluates a whole ward's readings split across a fork-join pool by slot range.
+     * Critical readings are gathered into a concurrent buffer and sent from the calling thread
+     * once every range has been scanned.
+     * @param readings Readings indexed {@code [vitalId][slot]}; a null column means the vital was not sampled.
+     * @param pool Pool to run the scan in, e.g. {@link ForkJoinPool#commonPool()}.
+     * @return Number of critical readings found.
+     * @throws RpmsException If readings or pool is null, or a column is at an id never interned or shorter
+     *         than {@link #slotRange()}.
+     */
+    public int evaluateParallel(double[][] readings, ForkJoinPool pool) throws RpmsException {
+        if (readings == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Readings can't be null");
+        }
+        if (pool == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Pool can't be null");
+        }
+        ConcurrentLinkedQueue<Alert> alerts = new ConcurrentLinkedQueue<>();
+        lock.readLock().lock();
+        try {
+            checkColumns(readings);
+            // Workers read the columns while this thread holds the read lock; invoke() waits for them
+            pool.invoke(new ScanTask(readings, 0, slotRange, alerts));
+            for (int vital = 0; vital < readings.length && vital < min.length; vital++) {
+                if (readings[vital] != null) {
+                    EmergencyAlert.EVALUATIONS.add(slotRange);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return send(alerts);
+    }
+
+    /**
+     * Evaluates one vital across the ward.
+     * @param vitalId Interned vital id.
+     * @param column Readings indexed by slot.
+     * @return Number of critical readings found.
+     * @throws RpmsException If the vital id was never interned, or column is null or shorter than
+     *         {@link #slotRange()}.
+     */
+    public int evaluate(int vitalId, double[] column) throws RpmsException {
+        if (column == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Readings can't be null");
+        }
+        checkVital(vitalId);
+        List<Alert> alerts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkColumn(vitalId, column);
+            // Vitals interned after the ward's thresholds were set have none, so nothing alerts
+            if (vitalId < min.length) {
+                scan(vitalId, column, 0, slotRange, alerts);
+                EmergencyAlert.EVALUATIONS.add(slotRange);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return send(alerts);
+    }
+
+    private void checkColumns(double[][] readings) throws RpmsException {
+        for (int vital = 0; vital < readings.length; vital++) {
+            if (readings[vital] != null) {
+                checkColumn(vital, readings[vital]);
+            }
+        }
+    }
+
+    private void checkColumn(int vital, double[] values) throws RpmsException {
+        checkVital(vital);
+        if (values.length < slotRange) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Readings for " + VitalRegistry.nameOf(vital)
+                + " cover " + values.length + " of " + slotRange + " slots");
+        }
+    }
+
+    private static void checkVital(int vital) throws RpmsException {
+        if (!VitalRegistry.isInterned(vital)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Unknown vital id: " + vital);
+        }
+    }
+
+    /**
+     * Scans a slot range of one column. The first loop over each block is branch-free so it
+     * vectorizes; the second runs only for blocks that contain a critical value. NaN readings
+     * never alert, matching {@link VitalSignThreshold#isCritical(double)}.
+     */
+    private void scan(int vital, double[] values, int from, int to, Collection<Alert> alerts) {
+        double[] lo = min[vital];
+        double[] hi = max[vital];
+        for (int base = from; base < to; base += BLOCK) {
+            int end = Math.min(to, base + BLOCK);
+            int flagged = 0;
+            for (int slot = base; slot < end; slot++) {
+                double value = values[slot];
+                flagged |= (value < lo[slot] ? 1 : 0) | (value > hi[slot] ? 1 : 0);
+            }
+            if (flagged == 0) {
+                continue;
+            }
+            for (int slot = base; slot < end; slot++) {
+                double value = values[slot];
+                if (value < lo[slot] || value > hi[slot]) {
+                    alerts.add(new Alert(patientIds[slot], contacts[slot],
+                        profiles[slot].getThreshold(vital), value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends collected alerts outside the lock so slow notifiers don't hold up admissions.
+     */
+    private int send(Collection<Alert> alerts) {
+        for (Alert alert : alerts) {
+            try {
+                EmergencyAlert.sendAlert(notifier, suppressor, alert.patientId, alert.contact,
+                    alert.threshold, alert.value);
+            } catch (RpmsException e) {
+                e.log(LOGGER);
+            }
+        }
+        return alerts.size();
+    }
+
+    private int requireSlot(String patientId) throws RpmsException {
+        Integer slot = slots.get(patientId);
+        if (slot == null) {
+            throw new RpmsException(ErrorCode.UNKNOWN_PATIENT, "Patient not admitted: " + patientId);
+        }
+        return slot;
+    }
+
+    /**
+     * Copies a profile's ranges into the patient's column entries.
+     */
+    private void applyProfile(int slot, ThresholdProfile profile) {
+        ensureColumns(profile.size());
+        profiles[slot] = profile;
+        for (int vital = 0; vital < min.length; vital++) {
+            VitalSignThreshold threshold = profile.getThreshold(vital);
+            min[vital][slot] = threshold != null ? threshold.getMin() : Double.NEGATIVE_INFINITY;
+            max[vital][slot] = threshold != null ? threshold.getMax() : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private void ensureColumns(int vitals) {
+        if (vitals <= min.length) {
+            return;
+        }
+        int previous = min.length;
+        min = Arrays.copyOf(min, vitals);
+        max = Arrays.copyOf(max, vitals);
+        for (int vital = previous; vital < vitals; vital++) {
+            min[vital] = new double[patientIds.length];
+            max[vital] = new double[patientIds.length];
+            Arrays.fill(min[vital], Double.NEGATIVE_INFINITY);
+            Arrays.fill(max[vital], Double.POSITIVE_INFINITY);
+        }
+    }
+
+    private void grow(int capacity) {
+        int previous = patientIds.length;
+        patientIds = Arrays.copyOf(patientIds, capacity);
+        contacts = Arrays.copyOf(contacts, capacity);
+        profiles = Arrays.copyOf(profiles, capacity);
+        for (int vital = 0; vital < min.length; vital++) {
+            min[vital] = Arrays.copyOf(min[vital], capacity);
+            max[vital] = Arrays.copyOf(max[vital], capacity);
+            Arrays.fill(min[vital], previous, capacity, Double.NEGATIVE_INFINITY);
+            Arrays.fill(max[vital], previous, capacity, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Scans every sampled vital over a slot range, halving the range until it is small enough.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[][] readings;
+        private final int from;
+        private final int to;
+        private final transient Collection<Alert> alerts;
+
+        ScanTask(double[][] readings, int from, int to, Collection<Alert> alerts) {
+            this.readings = readings;
+            this.from = from;
+            this.to = to;
+            this.alerts = alerts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_SLOTS) {
+                // Split on a block boundary so no block is scanned by two tasks
+                int middle = (from + (to - from) / 2) & -BLOCK;
+                invokeAll(new ScanTask(readings, from, middle, alerts), new ScanTask(readings, middle, to, alerts));
+                return;
+            }
+            for (int vital = 0; vital < readings.length && vital < min.length; vital++) {
+                if (readings[vital] != null) {
+                    scan(vital, readings[vital], from, to, alerts);
+                }
+            }
+        }
+    }
+
+    /**
+     * A critical reading captured under the lock, sent after it is released.
+     */
+    private static final class Alert {
+        final String patientId;
+        final ValidatedContact contact;
+        final VitalSignThreshold threshold;
+        final double value;
+
+        Alert(String patientId, ValidatedContact contact, VitalSignThreshold threshold, double value) {
+            this.patientId = patientId;
+            this.contact = contact;
+            this.threshold = threshold;
+            this.value = value;
+        }
+    }
+}
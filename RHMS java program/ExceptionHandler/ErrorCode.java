@@ -0,0 +1,45 @@
+package exceptionhandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Error codes carried by {@link RpmsException}.
+ */
+public enum ErrorCode {
+    GENERAL_ERROR,
+    INVALID_INPUT,
+    INVALID_PLATFORM,
+    DUPLICATE_CHANNEL,
+    DUPLICATE_PATIENT,
+    DUPLICATE_VITAL,
+    UNKNOWN_CHANNEL,
+    UNKNOWN_PATIENT,
+    NO_ACTIVE_CONSULTATION,
+    NOTIFICATION_FAILED,
+    QUEUE_FULL,
+    DISPATCHER_CLOSED,
+    CIRCUIT_OPEN,
+    BULKHEAD_FULL,
+    CHANNEL_TIMEOUT,
+    STORE_CLOSED,
+    METRICS_ERROR;
+
+    private static final Map<String, ErrorCode> BY_NAME = new HashMap<>();
+
+    static {
+        for (ErrorCode code : values()) {
+            BY_NAME.put(code.name(), code);
+        }
+    }
+
+    /**
+     * Looks up a code by name without throwing.
+     * @param name Code name, e.g. "INVALID_INPUT".
+     * @return Matching code, or {@link #GENERAL_ERROR} if there is none.
+     */
+    public static ErrorCode of(String name) {
+        ErrorCode code = name == null ? null : BY_NAME.get(name);
+        return code != null ? code : GENERAL_ERROR;
+    }
+}
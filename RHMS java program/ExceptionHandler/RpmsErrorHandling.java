@@ -1,68 +1,31 @@
 package exceptionhandler;
 
 /**
- * Custom exception for Rpms system errors, used in ChatServer, Client, and more.
+ * General error raised by the chat, client and date classes, which report problems by message only.
  */
-public class RpmsException extends Exception {
-    private final String errorCode; // Error type code (e.g., "INVALID_INPUT")
+public class RpmsErrorHandling extends RpmsException {
+    private static final long serialVersionUID = 1L;
 
     /**
-     * Creates an RpmsException with an error code and message.
-     * @param errorCode Error type (e.g., "SESSION_ERROR").
+     * Creates a general error with a message and a stack trace, for I/O and persistence failures.
      * @param message What went wrong.
      */
-    public RpmsException(String errorCode, String message) {
-        super(message);
-        this.errorCode = errorCode;
+    public RpmsErrorHandling(String message) {
+        super(ErrorCode.GENERAL_ERROR, message);
     }
 
-    /**
-     * Creates an RpmsException with error code, message, and cause.
-     * @param errorCode Error type.
-     * @param message Error description.
-     * @param cause Root cause.
-     */
-    public RpmsException(String errorCode, String message, Throwable cause) {
-        super(message, cause);
-        this.errorCode = errorCode;
-    }
-
-    /**
-     * Creates an RpmsException with a cause.
-     * @param cause Root cause.
-     */
-    public RpmsException(Throwable cause) {
-        super(cause);
-        this.errorCode = "GENERAL_ERROR";
+    private RpmsErrorHandling(ErrorCode code, String message) {
+        super(code, message, null, false);
     }
 
     /**
-     * Creates a basic RpmsException.
-     */
-    public RpmsException() {
-        super("Oops, Rpms hit a snag!");
-        this.errorCode = "GENERAL_ERROR";
-    }
-
-    /**
-     * Gets the error code.
-     * @return Error code.
-     */
-    public String getErrorCode() {
-        return errorCode;
-    }
-
-    /**
-     * Logs the error with a logger.
-     * @param logger Logger to use.
+     * Creates an error for an expected failure such as invalid input or a closed session,
+     * without a stack trace.
+     * @param code Error type.
+     * @param message What went wrong.
+     * @return Stackless error.
      */
-    public void log(java.util.logging.Logger logger) {
-        String logMessage = String.format(
-            "RpmsException [Code: %s]: %s%s",
-            errorCode,
-            getMessage(),
-            getCause() != null ? ", Cause: " + getCause().getMessage() : ""
-        );
-        logger.severe(logMessage);
+    public static RpmsErrorHandling withoutStackTrace(ErrorCode code, String message) {
+        return new RpmsErrorHandling(code, message);
     }
-}
\ No newline at end of file
+}
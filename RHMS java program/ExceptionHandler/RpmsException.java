@@ -0,0 +1,135 @@
+package exceptionhandler;
+
+import java.util.logging.Level;
+
+/**
+ * Custom exception for Rpms system errors, used in ChatServer, Client, and more.
+ */
+public class RpmsException extends Exception {
+    private static final long serialVersionUID = 1L;
+    private final ErrorCode code;
+    private final String errorCode; // Error type code (e.g., "INVALID_INPUT")
+
+    /**
+     * Creates an RpmsException with an error code and message.
+     * @param code Error type.
+     * @param message What went wrong.
+     */
+    public RpmsException(ErrorCode code, String message) {
+        super(message);
+        this.code = code;
+        this.errorCode = code.name();
+    }
+
+    /**
+     * Creates an RpmsException with error code, message, and cause.
+     * @param code Error type.
+     * @param message Error description.
+     * @param cause Root cause.
+     */
+    public RpmsException(ErrorCode code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+        this.errorCode = code.name();
+    }
+
+    /**
+     * Creates an RpmsException with an error code and message.
+     * @param errorCode Error type (e.g., "SESSION_ERROR"); names outside {@link ErrorCode} map to GENERAL_ERROR.
+     * @param message What went wrong.
+     */
+    public RpmsException(String errorCode, String message) {
+        super(message);
+        this.code = ErrorCode.of(errorCode);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Creates an RpmsException with error code, message, and cause.
+     * @param errorCode Error type; names outside {@link ErrorCode} map to GENERAL_ERROR.
+     * @param message Error description.
+     * @param cause Root cause.
+     */
+    public RpmsException(String errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.code = ErrorCode.of(errorCode);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Creates an RpmsException with a cause.
+     * @param cause Root cause.
+     */
+    public RpmsException(Throwable cause) {
+        super(cause);
+        this.code = ErrorCode.GENERAL_ERROR;
+        this.errorCode = code.name();
+    }
+
+    /**
+     * Creates a basic RpmsException.
+     */
+    public RpmsException() {
+        super("Oops, Rpms hit a snag!");
+        this.code = ErrorCode.GENERAL_ERROR;
+        this.errorCode = code.name();
+    }
+
+    /**
+     * Creates an RpmsException that may skip capturing its stack trace.
+     * @param code Error type.
+     * @param message Error description.
+     * @param cause Root cause, or null.
+     * @param writableStackTrace False to skip the stack walk and suppression list.
+     */
+    protected RpmsException(ErrorCode code, String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
+        this.code = code;
+        this.errorCode = code.name();
+    }
+
+    /**
+     * Creates an exception for an expected failure such as invalid input, without a stack trace.
+     * Filling in the stack is most of the cost of throwing, and the error code and message
+     * already say what went wrong.
+     * @param code Error type.
+     * @param message What went wrong.
+     * @return Stackless exception.
+     */
+    public static RpmsException withoutStackTrace(ErrorCode code, String message) {
+        return new RpmsException(code, message, null, false);
+    }
+
+    /**
+     * Gets the error code.
+     * @return Error code name.
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Gets the typed error code.
+     * @return Error code.
+     */
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    /**
+     * Logs the error with a logger. The text is formatted by the logger's handlers, so nothing
+     * is built if SEVERE is disabled.
+     * @param logger Logger to use.
+     */
+    public void log(java.util.logging.Logger logger) {
+        if (!logger.isLoggable(Level.SEVERE)) {
+            return;
+        }
+        if (getCause() == null) {
+            logger.log(Level.SEVERE, "RpmsException [Code: {0}]: {1}", new Object[] {errorCode, getMessage()});
+        } else {
+            logger.log(Level.SEVERE, "RpmsException [Code: {0}]: {1}, Cause: {2}",
+                new Object[] {errorCode, getMessage(), getCause().getMessage()});
+        }
+    }
+}
\ No newline at end of file
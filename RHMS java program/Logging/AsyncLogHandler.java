@@ -0,0 +1,172 @@
+package logging;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * Log handler that hands records to a background writer through a bounded ring buffer.
+ * <p>
+ * The logging thread only claims a slot and stores the record; formatting and I/O happen on
+ * the writer thread, in the handlers this one wraps. Log with parameters, e.g.
+ * {@code LOGGER.log(Level.INFO, "Message routed: {0}", message)}, so the text is only built
+ * there. Parameters are formatted later, so pass immutable values. When the buffer is full the
+ * record is dropped and counted in {@code log.dropped} rather than blocking the caller.
+ * The source class is set to the logger name instead of being inferred from a stack walk.
+ */
+public final class AsyncLogHandler extends Handler {
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final Counter DROPPED = Metrics.counter("log.dropped");
+
+    private final Handler[] targets;
+    private final AtomicReferenceArray<LogRecord> slots;
+    private final int mask;
+    // Next slot to claim; advanced by logging threads
+    private final AtomicLong tail = new AtomicLong();
+    // Next slot to publish; advanced only by the writer
+    private volatile long head;
+    private volatile boolean closed;
+    private final Thread writer;
+
+    /**
+     * Starts a handler writing to the given handlers.
+     * @param capacity Ring buffer size, rounded up to a power of two.
+     * @param targets Handlers that format and write the records.
+     * @throws IllegalArgumentException If capacity is not positive or no target is given.
+     */
+    public AsyncLogHandler(int capacity, Handler... targets) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (targets == null || targets.length == 0) {
+            throw new IllegalArgumentException("At least one target handler is needed");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.targets = Arrays.copyOf(targets, targets.length);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        setLevel(Level.ALL);
+        this.writer = new Thread(this::runWriter, "async-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Moves the root logger's handlers behind an asynchronous handler. Calling it again returns
+     * the handler already installed.
+     * @param capacity Ring buffer size, rounded up to a power of two.
+     * @return Installed handler.
+     */
+    public static synchronized AsyncLogHandler install(int capacity) {
+        Logger root = Logger.getLogger("");
+        Handler[] handlers = root.getHandlers();
+        for (Handler handler : handlers) {
+            if (handler instanceof AsyncLogHandler) {
+                return (AsyncLogHandler) handler;
+            }
+        }
+        AsyncLogHandler async = new AsyncLogHandler(capacity, handlers);
+        for (Handler handler : handlers) {
+            root.removeHandler(handler);
+        }
+        root.addHandler(async);
+        return async;
+    }
+
+    /**
+     * Queues a record for the writer thread. Never blocks.
+     * @param record Record to log.
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // Reading the source class would walk the stack, so it is overwritten instead
+        record.setSourceClassName(record.getLoggerName());
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                DROPPED.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) claimed & mask, record);
+    }
+
+    /**
+     * Waits until every record queued before the call is written, then flushes the targets.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (head < target && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+        for (Handler handler : targets) {
+            handler.flush();
+        }
+    }
+
+    /**
+     * Stops accepting records, writes everything already queued, and closes the targets.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler handler : targets) {
+            handler.close();
+        }
+    }
+
+    /**
+     * Returns the number of records waiting to be written.
+     * @return Queued records, including slots claimed but not yet filled.
+     */
+    public int getQueuedCount() {
+        return (int) (tail.get() - head);
+    }
+
+    private void runWriter() {
+        long next = head;
+        while (true) {
+            int index = (int) next & mask;
+            LogRecord record = slots.get(index);
+            if (record == null) {
+                // Either empty, or a logging thread claimed the slot and is about to fill it
+                if (closed && next == tail.get()) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            slots.lazySet(index, null);
+            head = ++next;
+            for (Handler handler : targets) {
+                try {
+                    handler.publish(record);
+                } catch (RuntimeException e) {
+                    reportError("Log target failed", e, ErrorManager.WRITE_FAILURE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free event counter. Increments from many threads land in separate cells,
+ * so counting never contends and never allocates once the cells exist.
+ */
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Counts several events.
+     * @param events Number of events.
+     */
+    public void add(long events) {
+        count.add(events);
+    }
+
+    /*
+     * Getter
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    /**
+     * Sets the count back to zero.
+     */
+    public void reset() {
+        count.reset();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,212 @@
+package metrics;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of named counters and latency histograms.
+ * <p>
+ * Look a metric up once, when the owning class is loaded, and keep it in a static field; the
+ * hot path then only touches the metric itself. Histogram metrics are reported as
+ * {@code name.count}, {@code name.mean}, {@code name.p50}, {@code name.p99}, {@code name.p999}
+ * and {@code name.max}. Everything can be read through JMX under {@value #OBJECT_NAME} and
+ * dumped to a file on a schedule.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "rhms:type=Metrics";
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+    private static final String[] SUFFIXES = {".count", ".mean", ".p50", ".p99", ".p999", ".max"};
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService dumper;
+    private static ScheduledFuture<?> dump;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter with a name, creating it on first use.
+     * @param name Metric name, e.g. {@code chat.routed}.
+     * @return Shared counter.
+     * @throws IllegalArgumentException If the name is empty or already used by a histogram.
+     */
+    public static Counter counter(String name) {
+        checkName(name, HISTOGRAMS);
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Returns the latency histogram with a name, creating it on first use.
+     * @param name Metric name, e.g. {@code video.start}.
+     * @return Shared histogram, recording nanoseconds by convention.
+     * @throws IllegalArgumentException If the name is empty or already used by a counter.
+     */
+    public static LatencyHistogram histogram(String name) {
+        checkName(name, COUNTERS);
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Reads every metric at once, histograms expanded into their summary values.
+     * Each value is read independently, so the snapshot is not atomic across metrics.
+     * @return Values sorted by name.
+     */
+    public static SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : COUNTERS.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+            for (String suffix : SUFFIXES) {
+                values.put(entry.getKey() + suffix, read(entry.getValue(), suffix));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads one reported value.
+     * @param name Counter name, or histogram name with a summary suffix.
+     * @return Value, or null if there is no such metric.
+     */
+    static Number read(String name) {
+        Counter counter = COUNTERS.get(name);
+        if (counter != null) {
+            return counter.get();
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        LatencyHistogram histogram = HISTOGRAMS.get(name.substring(0, dot));
+        return histogram == null ? null : read(histogram, name.substring(dot));
+    }
+
+    private static Number read(LatencyHistogram histogram, String suffix) {
+        switch (suffix) {
+            case ".count":
+                return histogram.getCount();
+            case ".mean":
+                return histogram.getMean();
+            case ".p50":
+                return histogram.getValueAtPercentile(50);
+            case ".p99":
+                return histogram.getValueAtPercentile(99);
+            case ".p999":
+                return histogram.getValueAtPercentile(99.9);
+            case ".max":
+                return histogram.getMax();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Clears every counter and histogram. Metrics stay registered.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Publishes the metrics to the platform MBean server. Calling it again does nothing.
+     * @throws RpmsException If registration fails.
+     */
+    public static void registerMBean() throws RpmsException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already published
+        } catch (JMException e) {
+            throw new RpmsException(ErrorCode.METRICS_ERROR, "Failed to register metrics MBean", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a file on a schedule, replacing the previous one atomically so a
+     * reader never sees a partial file. Replaces any dump already running.
+     * Each line is {@code name value}, after a {@code # timestamp} line in epoch milliseconds.
+     * @param file Snapshot file.
+     * @param periodMillis Time between snapshots.
+     * @throws RpmsException If the file is null or the period is not positive.
+     */
+    public static synchronized void startDump(Path file, long periodMillis) throws RpmsException {
+        if (file == null || periodMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Dump file can't be null and period must be positive");
+        }
+        stopDump();
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        dump = dumper.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write metrics snapshot to {0}: {1}", new Object[] {file, e.getMessage()});
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduled dump, if any. A snapshot being written is allowed to finish.
+     */
+    public static synchronized void stopDump() {
+        if (dump != null) {
+            dump.cancel(false);
+            dump = null;
+        }
+    }
+
+    /**
+     * Writes one snapshot now.
+     * @param file Snapshot file, replaced atomically.
+     * @throws IOException If writing fails.
+     */
+    public static void writeSnapshot(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write("# " + System.currentTimeMillis() + "\n");
+            for (Map.Entry<String, Number> entry : snapshot().entrySet()) {
+                out.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void checkName(String name, Map<String, ?> otherKind) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Metric name can't be empty");
+        }
+        if (otherKind.containsKey(name)) {
+            throw new IllegalArgumentException("Metric name already used by another kind: " + name);
+        }
+    }
+}
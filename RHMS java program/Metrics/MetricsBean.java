@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes {@link Metrics} as read-only JMX attributes, one per reported value, plus a
+ * {@code reset} operation. The attribute list is rebuilt on each request, so metrics
+ * registered later show up without re-registering the bean.
+ */
+class MetricsBean implements DynamicMBean {
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = Metrics.read(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("No such metric: " + attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = Metrics.read(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName)) {
+            Metrics.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Unknown operation: " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> snapshot = Metrics.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> entry : snapshot.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                entry.getKey(), true, false, false);
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears every metric",
+            new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "RHMS hot-path metrics", attributes, null,
+            new MBeanOperationInfo[] {reset}, null);
+    }
+}
@@ -1,5 +1,7 @@
 package notifier;
 
+import exceptionhandler.RpmsException;
+
 /**
  * Sends notifications like emails or SMS to keep folks informed.
  */
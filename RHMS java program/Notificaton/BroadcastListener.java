@@ -0,0 +1,25 @@
+package notifier;
+
+/**
+ * Receives the outcome of a broadcast as it happens. Results arrive on the threads that finish
+ * the sends, so implementations must be thread-safe; both methods do nothing by default.
+ * @param <R> Recipient type.
+ */
+public interface BroadcastListener<R> {
+    /**
+     * Reports one recipient's outcome on one channel.
+     * @param recipient Recipient.
+     * @param channel Channel name, or null if the recipient's contact details were invalid and
+     *        nothing was sent.
+     * @param error Failure, or null if the message was sent.
+     */
+    default void onResult(R recipient, String channel, Throwable error) {
+    }
+
+    /**
+     * Reports running totals, after every thousand recipients and once at the end.
+     * @param progress Totals so far.
+     */
+    default void onProgress(BroadcastReport progress) {
+    }
+}
@@ -0,0 +1,45 @@
+package notifier;
+
+/**
+ * Totals of a broadcast, either while it runs or once it has finished.
+ */
+public final class BroadcastReport {
+    private final long recipients;
+    private final long invalid;
+    private final long sent;
+    private final long failed;
+    private final long elapsedNanos;
+
+    BroadcastReport(long recipients, long invalid, long sent, long failed, long elapsedNanos) {
+        this.recipients = recipients;
+        this.invalid = invalid;
+        this.sent = sent;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /*
+     * Getter
+     */
+    public long getRecipients() {
+        return recipients;
+    }
+    public long getInvalid() {
+        return invalid;
+    }
+    public long getSent() {
+        return sent;
+    }
+    public long getFailed() {
+        return failed;
+    }
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastReport[recipients=" + recipients + ", invalid=" + invalid + ", sent=" + sent
+            + ", failed=" + failed + ", " + elapsedNanos / 1_000_000 + "ms]";
+    }
+}
@@ -0,0 +1,37 @@
+package notifier;
+
+/**
+ * Describes one message sent to many recipients: where each recipient is reached and how their
+ * copy of the message reads. Messages are rendered one recipient at a time, just before they
+ * are sent, so a broadcast never holds every rendered message at once.
+ * @param <R> Recipient type, e.g. a patient record.
+ */
+public interface BroadcastTemplate<R> {
+    /**
+     * Returns a recipient's email address; it is validated before anything is rendered.
+     * @param recipient Recipient.
+     * @return Email address.
+     */
+    String email(R recipient);
+
+    /**
+     * Returns a recipient's phone number; it is validated before anything is rendered.
+     * @param recipient Recipient.
+     * @return Phone number.
+     */
+    String phone(R recipient);
+
+    /**
+     * Returns the subject of a recipient's message.
+     * @param recipient Recipient.
+     * @return Subject.
+     */
+    String subject(R recipient);
+
+    /**
+     * Writes a recipient's message. The builder is empty and is reused for the next recipient.
+     * @param recipient Recipient.
+     * @param out Builder to append the message to.
+     */
+    void render(R recipient, StringBuilder out);
+}
@@ -0,0 +1,203 @@
+package notifier;
+
+import contactvalidation.ValidatedContact;
+import contactvalidation.ValidationResult;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * Runs one broadcast for a {@link NotificationService}.
+ * <p>
+ * Recipients are pulled from the iterator a chunk at a time. Each chunk is validated in one
+ * tight pass, then each valid recipient's message is rendered into a reused builder and
+ * started on every routed channel. A broadcast keeps at most half of each channel's queue
+ * capacity or bulkhead size in flight, pausing when that is reached, so other traffic and other
+ * broadcasts still find room, and memory stays at one chunk plus the in-flight sends however
+ * long the list is. A send still refused because the channel is full is retried with growing
+ * backoff before it counts as failed.
+ * <p>
+ * A recipient whose contact details can't be read counts as invalid, and one whose message
+ * can't be rendered counts as failed on every routed channel; either way the broadcast goes on.
+ * However {@link #run} ends, it first waits for the sends it started, so no result reaches the
+ * listener after it returns.
+ * @param <R> Recipient type.
+ */
+final class Broadcaster<R> {
+    private static final int CHUNK = 256;
+    private static final int PROGRESS_EVERY = 1000;
+    private static final int MAX_RETRIES = 12;
+    private static final long FIRST_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+    private static final Counter RECIPIENTS = Metrics.counter("notify.broadcast.recipients");
+    private static final Counter INVALID = Metrics.counter("notify.broadcast.invalid");
+    private static final Counter RETRIED = Metrics.counter("notify.broadcast.retried");
+
+    private final NotificationService service;
+    private final MessageType type;
+    private final BroadcastTemplate<? super R> template;
+    private final BroadcastListener<? super R> listener;
+    private final ChannelRegistry.Channel[] route;
+    private final Semaphore[] slots;
+    private final int[] capacities;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final long start = System.nanoTime();
+    private long recipients;
+    private long invalid;
+
+    Broadcaster(NotificationService service, MessageType type, BroadcastTemplate<? super R> template,
+            BroadcastListener<? super R> listener) {
+        this.service = service;
+        this.type = type;
+        this.template = template;
+        this.listener = listener;
+        this.route = service.route(type);
+        this.slots = new Semaphore[route.length];
+        this.capacities = new int[route.length];
+        for (int i = 0; i < route.length; i++) {
+            capacities[i] = Math.max(1, service.capacity(route[i]) / 2);
+            slots[i] = new Semaphore(capacities[i]);
+        }
+    }
+
+    /**
+     * Sends to every recipient and waits for the last send to finish.
+     * @param recipients Recipients, read once.
+     * @return Final totals.
+     * @throws RpmsException If interrupted, once the sends already started have finished.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BroadcastReport run(Iterator<? extends R> recipients) throws RpmsException {
+        R[] chunk = (R[]) new Object[CHUNK];
+        ValidationResult<ValidatedContact>[] contacts = new ValidationResult[CHUNK];
+        StringBuilder message = new StringBuilder(256);
+        try {
+            while (recipients.hasNext()) {
+                int count = 0;
+                while (count < CHUNK && recipients.hasNext()) {
+                    chunk[count++] = recipients.next();
+                }
+                // Validate the whole chunk before rendering or sending anything
+                for (int i = 0; i < count; i++) {
+                    contacts[i] = validate(chunk[i]);
+                }
+                for (int i = 0; i < count; i++) {
+                    send(chunk[i], contacts[i], message);
+                }
+                // Let the chunk's recipients go once their sends hold the only references
+                Arrays.fill(chunk, 0, count, null);
+                Arrays.fill(contacts, 0, count, null);
+                long before = this.recipients;
+                this.recipients += count;
+                RECIPIENTS.add(count);
+                if (before / PROGRESS_EVERY != this.recipients / PROGRESS_EVERY) {
+                    listener.onProgress(report());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpmsException(ErrorCode.NOTIFICATION_FAILED, "Broadcast interrupted after "
+                + this.recipients + " recipients", e);
+        } finally {
+            // Every send has finished once all slots are back, also when the iterator or the
+            // listener threw, so the caller never sees results after the broadcast ended
+            for (int i = 0; i < slots.length; i++) {
+                slots[i].acquireUninterruptibly(capacities[i]);
+            }
+        }
+        BroadcastReport report = report();
+        listener.onProgress(report);
+        return report;
+    }
+
+    private ValidationResult<ValidatedContact> validate(R recipient) {
+        try {
+            return ValidatedContact.tryOf(template.email(recipient), template.phone(recipient));
+        } catch (RuntimeException e) {
+            return ValidationResult.invalid(ErrorCode.INVALID_INPUT, "Contact details could not be read: " + e);
+        }
+    }
+
+    private void send(R recipient, ValidationResult<ValidatedContact> result, StringBuilder message)
+            throws InterruptedException {
+        if (!result.isValid()) {
+            invalid++;
+            INVALID.increment();
+            listener.onResult(recipient, null, RpmsException.withoutStackTrace(result.getError(), result.getMessage()));
+            return;
+        }
+        ValidatedContact contact = result.getValue();
+        String text;
+        String subject;
+        try {
+            message.setLength(0);
+            template.render(recipient, message);
+            text = message.toString();
+            subject = template.subject(recipient);
+        } catch (RuntimeException e) {
+            RpmsException error = new RpmsException(ErrorCode.NOTIFICATION_FAILED, "Message could not be rendered", e);
+            for (ChannelRegistry.Channel channel : route) {
+                failed.incrementAndGet();
+                listener.onResult(recipient, channel.name, error);
+            }
+            return;
+        }
+        for (int i = 0; i < route.length; i++) {
+            ChannelRegistry.Channel channel = route[i];
+            Semaphore slot = slots[i];
+            slot.acquire();
+            start(recipient, channel, channel.address.of(contact), subject, text, slot, 0);
+        }
+    }
+
+    /**
+     * Starts one send, retrying it later if the channel was too busy to take it.
+     */
+    private void start(R recipient, ChannelRegistry.Channel channel, String to, String subject, String text,
+            Semaphore slot, int retries) {
+        service.start(type, channel, to, subject, text).whenComplete((ok, error) -> {
+            if (retries < MAX_RETRIES && isFull(error)) {
+                RETRIED.increment();
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, FIRST_BACKOFF_MILLIS << retries);
+                // Half of it random, so sends refused together don't all come back together
+                backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS)
+                    .execute(() -> start(recipient, channel, to, subject, text, slot, retries + 1));
+                return;
+            }
+            if (error == null) {
+                sent.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            try {
+                listener.onResult(recipient, channel.name, error);
+            } finally {
+                slot.release();
+            }
+        });
+    }
+
+    private static boolean isFull(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof RpmsException)) {
+            return false;
+        }
+        ErrorCode code = ((RpmsException) cause).getCode();
+        return code == ErrorCode.BULKHEAD_FULL || code == ErrorCode.QUEUE_FULL;
+    }
+
+    private BroadcastReport report() {
+        return new BroadcastReport(recipients, invalid, sent.get(), failed.get(), System.nanoTime() - start);
+    }
+}
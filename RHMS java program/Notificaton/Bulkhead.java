@@ -0,0 +1,149 @@
+package notifier;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * Runs one channel's synchronous sends on their own virtual threads, at most a fixed number
+ * at a time, so a hung channel only ties up its own permits and never the caller or another
+ * channel. A send that runs past the timeout is reported as failed while its thread carries
+ * on holding a permit; when all permits are held, sends are refused at once.
+ * <p>
+ * Sends pass through the channel's {@link CircuitBreaker} first, and each outcome, including a
+ * timeout, is recorded with it exactly once. Timeouts are counted in
+ * {@code notify.<name>.timeouts}, refusals in the channel's {@code rejected} counter.
+ */
+final class Bulkhead {
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = timeoutScheduler();
+    private final ChannelRegistry.Channel channel;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long timeoutMillis;
+    private final Counter timeouts;
+
+    /**
+     * Creates a bulkhead for a channel.
+     * @param channel Channel to send through.
+     * @param maxConcurrent Most sends running at once.
+     * @param timeoutMillis Longest a caller waits for a send.
+     */
+    Bulkhead(ChannelRegistry.Channel channel, int maxConcurrent, long timeoutMillis) {
+        this.channel = channel;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMillis = timeoutMillis;
+        this.timeouts = Metrics.counter("notify." + channel.name + ".timeouts");
+    }
+
+    /**
+     * Returns the most sends the bulkhead runs at once.
+     * @return Permit count.
+     */
+    int capacity() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Starts a send without waiting for it.
+     * @param to Recipient.
+     * @param subject Subject.
+     * @param message Message content.
+     * @return Future completed when sent; fails if the breaker is open, the bulkhead is full,
+     *         the send fails, or it times out.
+     */
+    CompletableFuture<Void> submit(String to, String subject, String message) {
+        CircuitBreaker breaker = channel.breaker;
+        long permit = breaker.tryAcquire();
+        if (permit < 0) {
+            return CompletableFuture.failedFuture(breaker.openError());
+        }
+        if (!permits.tryAcquire()) {
+            channel.rejected.increment();
+            // Refused before it reached the channel, so it says nothing about the channel's health
+            breaker.release(permit);
+            return CompletableFuture.failedFuture(RpmsException.withoutStackTrace(ErrorCode.BULKHEAD_FULL,
+                channel.name + " has too many sends in progress"));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("notify-" + channel.name).start(() -> {
+            Throwable failure = null;
+            try {
+                channel.send(to, subject, message);
+            } catch (RpmsException | RuntimeException e) {
+                failure = e;
+            } finally {
+                // Freed before the caller hears back, so a follow-up send finds the permit
+                permits.release();
+            }
+            if (failure == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+        ScheduledFuture<?> timeout = TIMEOUTS.schedule(() -> {
+            if (result.completeExceptionally(RpmsException.withoutStackTrace(ErrorCode.CHANNEL_TIMEOUT,
+                    channel.name + " send timed out after " + timeoutMillis + " ms"))) {
+                timeouts.increment();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((ok, error) -> {
+            timeout.cancel(false);
+            breaker.record(permit, error);
+        });
+        return result;
+    }
+
+    /**
+     * Sends and waits for the outcome.
+     * @param to Recipient.
+     * @param subject Subject.
+     * @param message Message content.
+     * @throws RpmsException If the send is refused, fails or times out.
+     */
+    void call(String to, String subject, String message) throws RpmsException {
+        await(submit(to, subject, message));
+    }
+
+    private static ScheduledThreadPoolExecutor timeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "bulkhead-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Sends that finish in time take their timer out of the queue instead of leaving it to expire
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Waits for a started send.
+     * @param send Future from {@link #submit}.
+     * @throws RpmsException If the send was refused, failed or timed out.
+     */
+    static void await(CompletableFuture<Void> send) throws RpmsException {
+        try {
+            send.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RpmsException) {
+                throw (RpmsException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RpmsException(ErrorCode.NOTIFICATION_FAILED, "Send failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpmsException(ErrorCode.NOTIFICATION_FAILED, "Interrupted while sending", e);
+        }
+    }
+}
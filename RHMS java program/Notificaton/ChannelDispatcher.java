@@ -0,0 +1,259 @@
+package notifier;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends notifications for one channel from bounded priority lanes on a pool of virtual threads.
+ * <p>
+ * Each {@link MessageType.Priority} has its own queue, so a backlog of bulk messages never fills
+ * the space critical alerts need. Workers take a batch from the highest non-empty lane, and with
+ * more than one worker the first one serves only the critical lane, so a critical alert waits for
+ * at most one in-flight critical send rather than for a bulk batch.
+ * Messages queued for the same recipient and subject are coalesced into one send, and while the
+ * channel's circuit breaker is open queued messages fail without being sent.
+ * <p>
+ * Every send goes through the channel's {@link Bulkhead}, so a hung channel holds a worker for
+ * at most the call timeout, and once its sends fill the bulkhead the rest fail at once.
+ */
+class ChannelDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(ChannelDispatcher.class.getName());
+    private static final long POLL_MILLIS = 50;
+    private static final MessageType.Priority[] LANES = MessageType.Priority.values();
+
+    private final String channelName;
+    private final ChannelRegistry.Channel channel;
+    private final Bulkhead bulkhead;
+    private final BlockingQueue<Pending>[] lanes;
+    // Wakes general workers when any lane gets a message; a hint only, lanes are rescanned regardless
+    private final Semaphore signal = new Semaphore(0);
+    private final int maxBatchSize;
+    private final int queueCapacity;
+    private final Thread[] workers;
+    private volatile boolean closed;
+
+    /**
+     * A queued message and the future completed once it is sent.
+     */
+    private static final class Pending {
+        final String to;
+        final String subject;
+        final String message;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Pending(String to, String subject, String message) {
+            this.to = to;
+            this.subject = subject;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Starts the worker pool for a channel.
+     * @param channel Channel to send through; its name is used for thread names and logs.
+     * @param bulkhead The channel's bulkhead, which every send goes through.
+     * @param queueCapacity Maximum number of queued messages per lane.
+     * @param workerCount Number of worker threads.
+     * @param maxBatchSize Maximum number of messages taken per drain.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ChannelDispatcher(ChannelRegistry.Channel channel, Bulkhead bulkhead, int queueCapacity, int workerCount,
+            int maxBatchSize) {
+        this.channelName = channel.name;
+        this.channel = channel;
+        this.bulkhead = bulkhead;
+        this.lanes = new BlockingQueue[LANES.length];
+        for (int lane = 0; lane < LANES.length; lane++) {
+            lanes[lane] = new ArrayBlockingQueue<>(queueCapacity);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.queueCapacity = queueCapacity;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            boolean criticalOnly = i == 0 && workerCount > 1;
+            workers[i] = Thread.ofVirtual().name("notify-" + channelName + "-" + i)
+                .start(criticalOnly ? this::runCriticalWorker : this::runWorker);
+        }
+    }
+
+    /**
+     * Returns how many messages each lane holds.
+     * @return Lane capacity.
+     */
+    int capacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Queues a message without blocking the caller.
+     * @param priority Lane to queue the message in.
+     * @param to Recipient.
+     * @param subject Subject.
+     * @param message Message content.
+     * @return Future completed when the message is sent, or failed if the lane is full or closed.
+     */
+    CompletableFuture<Void> submit(MessageType.Priority priority, String to, String subject, String message) {
+        Pending pending = new Pending(to, subject, message);
+        if (closed) {
+            pending.result.completeExceptionally(
+                RpmsException.withoutStackTrace(ErrorCode.DISPATCHER_CLOSED, channelName + " dispatcher is shut down"));
+        } else if (!lanes[priority.ordinal()].offer(pending)) {
+            channel.rejected.increment();
+            pending.result.completeExceptionally(
+                RpmsException.withoutStackTrace(ErrorCode.QUEUE_FULL, channelName + " " + priority + " queue is full"));
+        } else {
+            signal.release();
+        }
+        return pending.result;
+    }
+
+    /**
+     * Stops accepting messages, sends everything already queued, and waits for the workers.
+     * @param timeoutMillis Maximum time to wait for the drain.
+     * @return True if the queue drained in time, false otherwise.
+     */
+    boolean shutdown(long timeoutMillis) {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (Thread worker : workers) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !worker.join(Duration.ofNanos(remaining))) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // Anything that slipped in after the workers exited can no longer be sent
+        for (BlockingQueue<Pending> lane : lanes) {
+            Pending late;
+            while ((late = lane.poll()) != null) {
+                late.result.completeExceptionally(
+                    RpmsException.withoutStackTrace(ErrorCode.DISPATCHER_CLOSED, channelName + " dispatcher is shut down"));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of messages waiting to be sent.
+     * @return Queue depth across all lanes.
+     */
+    int pending() {
+        int pending = 0;
+        for (BlockingQueue<Pending> lane : lanes) {
+            pending += lane.size();
+        }
+        return pending;
+    }
+
+    private boolean drained() {
+        return closed && pending() == 0;
+    }
+
+    /**
+     * Serves every lane, highest first, taking one batch from a single lane at a time.
+     */
+    private void runWorker() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                signal.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                for (BlockingQueue<Pending> lane : lanes) {
+                    if (lane.drainTo(batch, maxBatchSize) > 0) {
+                        break;
+                    }
+                }
+                if (batch.isEmpty()) {
+                    if (drained()) {
+                        return;
+                    }
+                    continue;
+                }
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                // Keep draining so queued alerts are not dropped on shutdown
+                closed = true;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Serves only the critical lane, so critical alerts never wait behind a lower-priority batch.
+     */
+    private void runCriticalWorker() {
+        BlockingQueue<Pending> critical = lanes[MessageType.Priority.CRITICAL.ordinal()];
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                Pending first = critical.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (drained()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                critical.drainTo(batch, maxBatchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                closed = true;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Groups a batch by recipient and subject and sends one notification per group.
+     * @param batch Messages taken from the queue.
+     */
+    private void sendBatch(List<Pending> batch) {
+        Map<String, List<Pending>> groups = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            groups.computeIfAbsent(pending.to + '\u0000' + pending.subject, key -> new ArrayList<>()).add(pending);
+        }
+        for (List<Pending> group : groups.values()) {
+            Pending head = group.get(0);
+            String message = head.message;
+            if (group.size() > 1) {
+                StringBuilder joined = new StringBuilder(head.message);
+                for (int i = 1; i < group.size(); i++) {
+                    joined.append('\n').append(group.get(i).message);
+                }
+                message = joined.toString();
+            }
+            try {
+                // The bulkhead consults and updates the circuit breaker itself
+                bulkhead.call(head.to, head.subject, message);
+                for (Pending pending : group) {
+                    pending.result.complete(null);
+                }
+            } catch (RpmsException | RuntimeException e) {
+                if (!(e instanceof RpmsException) || ((RpmsException) e).getCode() != ErrorCode.CIRCUIT_OPEN) {
+                    LOGGER.log(Level.WARNING, "{0} send to {1} failed: {2}",
+                        new Object[] {channelName, head.to, e.getMessage()});
+                }
+                for (Pending pending : group) {
+                    pending.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package notifier;
+
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names the notification channels a {@link NotificationService} sends through and which
+ * channels each {@link MessageType} is routed to. Types without a route go to every channel.
+ * The service copies the channel list and routes when it is created, so channels registered,
+ * breakers reconfigured or routes changed later don't affect it. The channels it copied, with
+ * their circuit breakers, are shared by every service built from the same registry.
+ */
+public class ChannelRegistry {
+    public static final String EMAIL = "email";
+    public static final String SMS = "sms";
+    private static final int DEFAULT_WINDOW = 20;
+    private static final int DEFAULT_MINIMUM_CALLS = 10;
+    private static final int DEFAULT_FAILURE_RATE = 50;
+    private static final long DEFAULT_OPEN_MILLIS = 30_000;
+
+    /**
+     * Which of a contact's addresses a channel delivers to.
+     */
+    public enum Address {
+        EMAIL,
+        PHONE;
+
+        String of(ValidatedContact contact) {
+            return this == EMAIL ? contact.getEmail() : contact.getPhone();
+        }
+    }
+
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+    private final Map<MessageType, List<String>> routes = new EnumMap<>(MessageType.class);
+
+    /**
+     * A registered channel, its circuit breaker and its send metrics, {@code notify.<name>.sent},
+     * {@code .failed}, {@code .rejected} and {@code .latency}, shared by every channel of the
+     * same name.
+     */
+    static final class Channel {
+        final String name;
+        final Notifiable notifiable;
+        final Address address;
+        final CircuitBreaker breaker;
+        final Counter sent;
+        final Counter failed;
+        final Counter rejected;
+        final LatencyHistogram latency;
+
+        Channel(String name, Notifiable notifiable, Address address, CircuitBreaker breaker) {
+            this.name = name;
+            this.notifiable = notifiable;
+            this.address = address;
+            this.breaker = breaker;
+            this.sent = Metrics.counter("notify." + name + ".sent");
+            this.failed = Metrics.counter("notify." + name + ".failed");
+            this.rejected = Metrics.counter("notify." + name + ".rejected");
+            this.latency = Metrics.histogram("notify." + name + ".latency");
+        }
+
+        /**
+         * Sends one notification, recording the outcome and its latency.
+         * @param to Recipient.
+         * @param subject Subject.
+         * @param message Message content.
+         * @throws RpmsException If sending fails.
+         */
+        void send(String to, String subject, String message) throws RpmsException {
+            long start = System.nanoTime();
+            try {
+                notifiable.sendNotification(to, subject, message);
+                sent.increment();
+            } catch (RpmsException | RuntimeException e) {
+                failed.increment();
+                throw e;
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Creates a registry with the usual email and SMS channels.
+     * @param emailNotifier Email notification service.
+     * @param smsNotifier SMS notification service.
+     * @return Registry with channels {@value #EMAIL} and {@value #SMS}.
+     * @throws RpmsException If notifiers are null.
+     */
+    public static ChannelRegistry of(Notifiable emailNotifier, Notifiable smsNotifier) throws RpmsException {
+        if (emailNotifier == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Email notifier can't be null");
+        }
+        if (smsNotifier == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "SMS notifier can't be null");
+        }
+        return new ChannelRegistry()
+            .register(EMAIL, emailNotifier, Address.EMAIL)
+            .register(SMS, smsNotifier, Address.PHONE);
+    }
+
+    /**
+     * Adds a channel.
+     * @param name Channel name.
+     * @param notifiable Channel implementation.
+     * @param address Contact address the channel delivers to.
+     * @return This registry.
+     * @throws RpmsException If an argument is missing or the name is taken.
+     */
+    public ChannelRegistry register(String name, Notifiable notifiable, Address address) throws RpmsException {
+        if (name == null || name.trim().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Channel name can't be empty");
+        }
+        if (notifiable == null || address == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Channel notifier and address can't be null");
+        }
+        if (channels.containsKey(name)) {
+            throw new RpmsException(ErrorCode.DUPLICATE_CHANNEL, "Channel already registered: " + name);
+        }
+        channels.put(name, new Channel(name, notifiable, address, new CircuitBreaker(breakerName(name),
+            DEFAULT_WINDOW, DEFAULT_MINIMUM_CALLS, DEFAULT_FAILURE_RATE, DEFAULT_OPEN_MILLIS, 1)));
+        return this;
+    }
+
+    /**
+     * Replaces a channel's circuit breaker settings. By default a channel opens when half of
+     * its last 20 sends failed, with at least 10 sends known, and probes again after 30 seconds.
+     * Breaker transitions are counted under {@code notify.<name>.breaker}.
+     * @param name Registered channel name.
+     * @param windowSize Number of recent sends the failure rate is taken over.
+     * @param minimumCalls Sends needed in the window before the breaker can open.
+     * @param failureRatePercent Failure rate, in percent, at which the breaker opens.
+     * @param openMillis Time the breaker stays open before probing.
+     * @param probes Sends let through while probing; all must succeed to close.
+     * @return This registry.
+     * @throws RpmsException If the channel is unknown or a setting is out of range.
+     */
+    public ChannelRegistry breaker(String name, int windowSize, int minimumCalls, int failureRatePercent,
+            long openMillis, int probes) throws RpmsException {
+        Channel channel = channels.get(name);
+        if (channel == null) {
+            throw new RpmsException(ErrorCode.UNKNOWN_CHANNEL, "Channel not registered: " + name);
+        }
+        CircuitBreaker breaker = new CircuitBreaker(breakerName(name), windowSize, minimumCalls,
+            failureRatePercent, openMillis, probes);
+        channels.put(name, new Channel(name, channel.notifiable, channel.address, breaker));
+        return this;
+    }
+
+    private static String breakerName(String channelName) {
+        return "notify." + channelName + ".breaker";
+    }
+
+    /**
+     * Routes a message type to the given channels, replacing any earlier route for it.
+     * @param type Message type.
+     * @param channelNames Registered channel names.
+     * @return This registry.
+     * @throws RpmsException If the type is null, no channel is given, or a channel is unknown.
+     */
+    public ChannelRegistry route(MessageType type, String... channelNames) throws RpmsException {
+        if (type == null || channelNames == null || channelNames.length == 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Route needs a type and at least one channel");
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : channelNames) {
+            if (!channels.containsKey(name)) {
+                throw new RpmsException(ErrorCode.UNKNOWN_CHANNEL, "Channel not registered: " + name);
+            }
+            names.add(name);
+        }
+        routes.put(type, Collections.unmodifiableList(names));
+        return this;
+    }
+
+    /**
+     * Returns the registered channel names in registration order.
+     * @return Channel names.
+     */
+    public List<String> getChannelNames() {
+        return Collections.unmodifiableList(new ArrayList<>(channels.keySet()));
+    }
+
+    Map<String, Channel> channels() {
+        return channels;
+    }
+
+    /**
+     * Returns the channels a type is routed to.
+     * @param type Message type.
+     * @return Channel names.
+     */
+    List<String> routeFor(MessageType type) {
+        List<String> names = routes.get(type);
+        return names != null ? names : new ArrayList<>(channels.keySet());
+    }
+}
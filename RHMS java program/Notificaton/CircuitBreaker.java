@@ -0,0 +1,241 @@
+package notifier;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.function.LongSupplier;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * Circuit breaker for one notification channel.
+ * <p>
+ * While closed, the outcomes of the last {@code windowSize} sends are kept; once at least
+ * {@code minimumCalls} are known and the share of failures reaches the threshold, the breaker
+ * opens and every send is refused at once. After {@code openMillis} it lets a few probe sends
+ * through: if they all succeed it closes again with a fresh window, and if one fails it opens
+ * for another period. Rejected input does not count as a failure of the channel.
+ * <p>
+ * Every transition starts a new generation, and a permit remembers the generation it was taken
+ * in, so the outcome of a send started before a transition never counts towards the state after
+ * it, for example as a probe result.
+ * <p>
+ * Transitions are counted in {@code <name>.opened}, {@code .halfOpened} and {@code .closed},
+ * and refused sends in {@code .shortCircuited}.
+ */
+public final class CircuitBreaker {
+    /**
+     * Breaker state.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    // Failure flags of the recent outcomes, as a ring
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long openMillis;
+    private final int probes;
+    private final LongSupplier clockMillis;
+    private final Counter opened;
+    private final Counter halfOpened;
+    private final Counter closed;
+    private final Counter shortCircuited;
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+    // Bumped after every state change, so a permit from the new state sees the new state
+    private volatile long generation;
+    // Guarded by this
+    private int next;
+    private int recorded;
+    private int failures;
+    private int probesStarted;
+    private int probeSuccesses;
+
+    /**
+     * Creates a closed breaker.
+     * @param name Metric name prefix, e.g. {@code notify.email.breaker}.
+     * @param windowSize Number of recent sends the failure rate is taken over.
+     * @param minimumCalls Sends needed in the window before the breaker can open.
+     * @param failureRatePercent Failure rate, in percent, at which the breaker opens.
+     * @param openMillis Time the breaker stays open before probing.
+     * @param probes Sends let through while half open; all must succeed to close.
+     * @throws RpmsException If a setting is out of range.
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRatePercent,
+            long openMillis, int probes) throws RpmsException {
+        this(name, windowSize, minimumCalls, failureRatePercent, openMillis, probes, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a closed breaker with its own clock.
+     * @param clockMillis Clock in milliseconds.
+     */
+    CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRatePercent,
+            long openMillis, int probes, LongSupplier clockMillis) throws RpmsException {
+        if (name == null || name.isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Breaker name can't be empty");
+        }
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Minimum calls must be between 1 and the window size");
+        }
+        if (failureRatePercent <= 0 || failureRatePercent > 100 || openMillis <= 0 || probes <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Failure rate must be 1-100 and open time and probes positive");
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.openMillis = openMillis;
+        this.probes = probes;
+        this.clockMillis = clockMillis;
+        this.opened = Metrics.counter(name + ".opened");
+        this.halfOpened = Metrics.counter(name + ".halfOpened");
+        this.closed = Metrics.counter(name + ".closed");
+        this.shortCircuited = Metrics.counter(name + ".shortCircuited");
+    }
+
+    /*
+     * Getter
+     */
+    public String getName() {
+        return name;
+    }
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the failure rate over the current window.
+     * @return Failure rate in percent, or 0 while the window is empty.
+     */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : 100.0 * failures / recorded;
+    }
+
+    /**
+     * Asks to start a send. Every permitted send must be followed by one {@link #record} or
+     * {@link #release} with the permit.
+     * @return Permit for the send, or -1 if the breaker refuses it.
+     */
+    public long tryAcquire() {
+        // Generation first: a permit then never claims a newer generation than the state it saw
+        long permit = generation;
+        State current = state;
+        if (current == State.CLOSED) {
+            return permit;
+        }
+        // An open breaker refuses without taking the lock until its time is up
+        if (current == State.OPEN && clockMillis.getAsLong() < openUntil) {
+            shortCircuited.increment();
+            return -1;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (clockMillis.getAsLong() < openUntil) {
+                    shortCircuited.increment();
+                    return -1;
+                }
+                probesStarted = 0;
+                probeSuccesses = 0;
+                transition(State.HALF_OPEN);
+                halfOpened.increment();
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesStarted >= probes) {
+                    shortCircuited.increment();
+                    return -1;
+                }
+                probesStarted++;
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Records the outcome of a permitted send.
+     * @param permit Permit from {@link #tryAcquire}.
+     * @param error Failure, or null if the send succeeded.
+     */
+    public synchronized void record(long permit, Throwable error) {
+        // Outcomes of sends started before the last transition say nothing about this state
+        if (permit != generation) {
+            return;
+        }
+        boolean ignored = error instanceof RpmsException
+            && ((RpmsException) error).getCode() == ErrorCode.INVALID_INPUT;
+        if (ignored) {
+            release(permit);
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (error != null) {
+                open();
+            } else if (++probeSuccesses >= probes) {
+                close();
+            }
+            return;
+        }
+        boolean failed = error != null;
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+        if (failed && recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+            open();
+        }
+    }
+
+    /**
+     * Gives back a permitted send that ended without saying anything about the channel.
+     * @param permit Permit from {@link #tryAcquire}.
+     */
+    public synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Returns the exception for a refused send, without a stack trace since it is expected.
+     * @return Circuit-open exception.
+     */
+    RpmsException openError() {
+        return RpmsException.withoutStackTrace(ErrorCode.CIRCUIT_OPEN, name + " is open");
+    }
+
+    private void open() {
+        openUntil = clockMillis.getAsLong() + openMillis;
+        transition(State.OPEN);
+        opened.increment();
+    }
+
+    private void close() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        transition(State.CLOSED);
+        closed.increment();
+    }
+
+    private void transition(State target) {
+        state = target;
+        generation++;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + state;
+    }
+}
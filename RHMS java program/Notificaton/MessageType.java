@@ -0,0 +1,33 @@
+package notifier;
+
+/**
+ * Kinds of notification, each with the dispatch lane it is queued in.
+ */
+public enum MessageType {
+    PANIC(Priority.CRITICAL),
+    EMERGENCY_ALERT(Priority.CRITICAL),
+    VIDEO_LINK(Priority.NORMAL),
+    REMINDER(Priority.BULK);
+
+    /**
+     * Dispatch lanes, highest first. Workers always drain a higher lane before a lower one.
+     */
+    public enum Priority {
+        CRITICAL,
+        NORMAL,
+        BULK
+    }
+
+    private final Priority priority;
+
+    MessageType(Priority priority) {
+        this.priority = priority;
+    }
+
+    /*
+     * Getter
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,707 @@
+package notifier;
+
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+
+/**
+ * Durable outbox in front of a {@link NotificationService}: every send is journaled and
+ * retried until it is delivered or runs out of attempts, including across restarts.
+ * <p>
+ * Each routed channel of a submitted message becomes one entry, keyed by the caller's
+ * idempotency key and the channel name. Submitting a key that is pending or was recently
+ * delivered does not send again. Journal records are written by a background thread that
+ * fsyncs each batch once (group commit), so submitting costs an encode and a queue add; delivery
+ * starts once that fsync has covered the entry, and if the write fails the submit fails instead.
+ * Failed sends are retried after an exponential backoff with jitter.
+ * <p>
+ * On open, entries without a delivered or dead record are sent again. A crash between a
+ * delivery and its record reaching disk can therefore repeat that one delivery; nothing
+ * journaled is lost.
+ * <p>
+ * Record layout is {@code [int length][int crc32c][byte kind][payload]}, as in the chat
+ * transcript log. Segments are deleted once their entries have all finished and none of the
+ * recently delivered keys is recorded in them, so deduplication survives a restart; the keys
+ * kept are bounded, and with them the journal.
+ */
+public class NotificationOutbox implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(NotificationOutbox.class.getName());
+    private static final byte ENQUEUE = 1;
+    private static final byte DONE = 2;
+    private static final byte DEAD = 3;
+    // Segment id of an entry or delivered key whose record is not on disk yet
+    private static final int UNWRITTEN = -1;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_BATCH = 1024;
+    private static final int REMEMBERED_KEYS = 1 << 16;
+    private static final String PREFIX = "outbox-";
+    private static final String SUFFIX = ".log";
+    private static final Counter SUBMITTED = Metrics.counter("outbox.submitted");
+    private static final Counter DUPLICATES = Metrics.counter("outbox.duplicates");
+    private static final Counter DELIVERED = Metrics.counter("outbox.delivered");
+    private static final Counter RETRIES = Metrics.counter("outbox.retries");
+    private static final Counter DEAD_LETTERS = Metrics.counter("outbox.dead");
+    private static final LatencyHistogram COMMIT_LATENCY = Metrics.histogram("outbox.commit");
+
+    private final NotificationService service;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ConcurrentHashMap<String, Entry> pending = new ConcurrentHashMap<>();
+    // Keys delivered recently, oldest first, so a repeated submit is recognised, each with the
+    // segment holding its record
+    private final Map<String, Integer> delivered = new LinkedHashMap<String, Integer>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            if (size() <= REMEMBERED_KEYS) {
+                return false;
+            }
+            release(eldest.getValue());
+            return true;
+        }
+    };
+    // Delivered keys recorded per segment, which keep it from being deleted; guarded by delivered
+    private final Map<Integer, Integer> deliveredKeys = new HashMap<>();
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    // Unfinished entries per segment; touched only by the writer thread after recovery
+    private final Map<Integer, Integer> liveEntries = new HashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final CRC32C crc = new CRC32C();
+    private final ScheduledExecutorService retries;
+    private final Thread writer;
+    private Segment active;
+    // Offset in the active segment up to which it has been fsynced
+    private int syncedTo;
+    private volatile boolean running = true;
+
+    /**
+     * One channel's share of a submitted message.
+     */
+    private static final class Entry {
+        final String key;
+        final MessageType type;
+        final String channel;
+        final String to;
+        final String subject;
+        final String message;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        int attempts;
+        int retries;
+        int segmentId = UNWRITTEN;
+
+        Entry(String key, MessageType type, String channel, String to, String subject, String message) {
+            this.key = key;
+            this.type = type;
+            this.channel = channel;
+            this.to = to;
+            this.subject = subject;
+            this.message = message;
+        }
+    }
+
+    /**
+     * An encoded journal record waiting for the writer thread.
+     */
+    private static final class Record {
+        final byte kind;
+        final Entry entry;
+        final byte[] bytes;
+
+        Record(byte kind, Entry entry, byte[] bytes) {
+            this.kind = kind;
+            this.entry = entry;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A mapped journal segment.
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        MappedByteBuffer map;
+        int size;
+
+        Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Opens an outbox with 4 MiB segments, 8 attempts and backoff from 1 second to 5 minutes.
+     * @param service Service that delivers the entries.
+     * @param directory Directory holding the journal.
+     * @throws IOException If the journal cannot be read.
+     * @throws RpmsException If the service is null.
+     */
+    public NotificationOutbox(NotificationService service, Path directory) throws IOException, RpmsException {
+        this(service, directory, 4 << 20, 8, 1000, TimeUnit.MINUTES.toMillis(5));
+    }
+
+    /**
+     * Opens or creates an outbox, resending every entry left unfinished by an earlier run.
+     * @param service Service that delivers the entries.
+     * @param directory Directory holding the journal.
+     * @param segmentBytes Size at which a journal segment is sealed and a new one started.
+     * @param maxAttempts Sends tried per entry before it is given up as dead.
+     * @param baseBackoffMillis Delay before the first retry; doubled for each later one.
+     * @param maxBackoffMillis Longest delay between retries.
+     * @throws IOException If the journal cannot be read.
+     * @throws RpmsException If the service is null or a setting is out of range.
+     */
+    public NotificationOutbox(NotificationService service, Path directory, int segmentBytes, int maxAttempts,
+            long baseBackoffMillis, long maxBackoffMillis) throws IOException, RpmsException {
+        if (service == null || directory == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Service and directory can't be null");
+        }
+        if (segmentBytes < 1024 || maxAttempts < 1) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Segment size must be at least 1 KiB and attempts positive");
+        }
+        if (baseBackoffMillis <= 0 || maxBackoffMillis < baseBackoffMillis) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Backoff must be positive and not above its maximum");
+        }
+        this.service = service;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        Files.createDirectories(directory);
+        recover();
+        this.retries = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "outbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::runWriter, "outbox-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (!pending.isEmpty()) {
+            LOGGER.log(Level.INFO, "Resending {0} unfinished notifications from {1}", new Object[] {pending.size(), directory});
+            for (Entry entry : pending.values()) {
+                attempt(entry);
+            }
+        }
+    }
+
+    /**
+     * Journals a message for every channel its type is routed to and delivers it once the
+     * journal record is on disk.
+     * @param type Message type.
+     * @param idempotencyKey Caller's key for this message; a key already pending or recently
+     *        delivered is not sent again.
+     * @param contact Recipient.
+     * @param subject Message subject.
+     * @param message Message content.
+     * @return Future completed when every channel has delivered; fails if a channel runs out of
+     *         attempts, the journal write fails or the outbox is closed.
+     */
+    public CompletableFuture<Void> submit(MessageType type, String idempotencyKey, ValidatedContact contact,
+            String subject, String message) {
+        if (type == null || contact == null || idempotencyKey == null || idempotencyKey.isEmpty()
+                || subject == null || message == null) {
+            return CompletableFuture.failedFuture(
+                RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Outbox entries need a type, key, contact, subject and message"));
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(closedError());
+        }
+        ChannelRegistry.Channel[] route = service.route(type);
+        CompletableFuture<?>[] results = new CompletableFuture<?>[route.length];
+        for (int i = 0; i < route.length; i++) {
+            ChannelRegistry.Channel channel = route[i];
+            String key = idempotencyKey + '/' + channel.name;
+            if (isDelivered(key)) {
+                DUPLICATES.increment();
+                results[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            Entry entry = new Entry(key, type, channel.name, channel.address.of(contact), subject, message);
+            byte[] record = encodeEntry(entry);
+            if (record.length > segmentBytes) {
+                results[i] = CompletableFuture.failedFuture(
+                    RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message is larger than an outbox segment"));
+                continue;
+            }
+            Entry existing = pending.putIfAbsent(key, entry);
+            if (existing != null) {
+                DUPLICATES.increment();
+                results[i] = existing.result;
+                continue;
+            }
+            SUBMITTED.increment();
+            queue.add(new Record(ENQUEUE, entry, record));
+            // A close that ran after the check above may have stopped the writer already
+            if (!running && pending.remove(key, entry)) {
+                entry.result.completeExceptionally(closedError());
+            }
+            results[i] = entry.result;
+        }
+        return CompletableFuture.allOf(results);
+    }
+
+    /**
+     * Returns the number of entries not yet delivered or given up.
+     * @return Pending entries.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops retrying, writes every queued record and closes the journal. Unfinished entries are
+     * resent when the outbox is opened again.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        retries.shutdownNow();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments.values()) {
+            if (segment == active) {
+                seal(segment);
+            }
+            segment.channel.close();
+        }
+        for (Entry entry : pending.values()) {
+            entry.result.completeExceptionally(closedError());
+        }
+    }
+
+    /**
+     * Sends an entry once, on a virtual thread so a slow channel never holds up the caller.
+     */
+    private void attempt(Entry entry) {
+        if (!running) {
+            return;
+        }
+        ChannelRegistry.Channel channel = service.channel(entry.channel);
+        if (channel == null) {
+            finish(entry, DEAD, RpmsException.withoutStackTrace(ErrorCode.UNKNOWN_CHANNEL,
+                "No " + entry.channel + " channel registered"));
+            return;
+        }
+        Thread.ofVirtual().name("outbox-send").start(() ->
+            service.queue(entry.type.getPriority(), channel, entry.to, entry.subject, entry.message)
+                .whenComplete((ok, error) -> onResult(entry, error)));
+    }
+
+    private void onResult(Entry entry, Throwable error) {
+        if (error == null) {
+            finish(entry, DONE, null);
+            return;
+        }
+        // A channel that refused the send without trying it is backed off from, but the refusal
+        // does not use up an attempt, so an outage or a burst never turns alerts into dead letters
+        entry.retries++;
+        if (!isRefusal(error) && ++entry.attempts >= maxAttempts) {
+            finish(entry, DEAD, error);
+            return;
+        }
+        if (!running) {
+            return;
+        }
+        RETRIES.increment();
+        long delay = backoffMillis(entry.retries);
+        LOGGER.log(Level.FINE, "Retrying {0} in {1} ms", new Object[] {entry.key, delay});
+        retries.schedule(() -> attempt(entry), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the delay before a retry: half the capped exponential delay plus a random share of
+     * the other half, so retries of many failed sends spread out instead of arriving together.
+     * @param retries Retries made so far, including refused ones.
+     * @return Delay in milliseconds.
+     */
+    private long backoffMillis(int retries) {
+        long exponential = baseBackoffMillis << Math.min(retries - 1, 30);
+        long capped = exponential <= 0 ? maxBackoffMillis : Math.min(maxBackoffMillis, exponential);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(capped - half + 1);
+    }
+
+    private void finish(Entry entry, byte kind, Throwable error) {
+        if (kind == DONE) {
+            // Marked delivered before it leaves pending, so a submit of the same key in between
+            // finds one or the other and never sends it again
+            synchronized (delivered) {
+                hold(entry.key, UNWRITTEN);
+            }
+        }
+        if (!pending.remove(entry.key, entry)) {
+            return;
+        }
+        queue.add(new Record(kind, entry, encodeKey(kind, entry.key)));
+        if (kind == DONE) {
+            DELIVERED.increment();
+            entry.result.complete(null);
+        } else {
+            DEAD_LETTERS.increment();
+            LOGGER.log(Level.WARNING, "Giving up on {0} after {1} attempts: {2}",
+                new Object[] {entry.key, entry.attempts, error.getMessage()});
+            entry.result.completeExceptionally(error);
+        }
+    }
+
+    private static boolean isRefusal(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof RpmsException)) {
+            return false;
+        }
+        ErrorCode code = ((RpmsException) cause).getCode();
+        return code == ErrorCode.CIRCUIT_OPEN || code == ErrorCode.BULKHEAD_FULL || code == ErrorCode.QUEUE_FULL;
+    }
+
+    private boolean isDelivered(String key) {
+        synchronized (delivered) {
+            return delivered.containsKey(key);
+        }
+    }
+
+    private static RpmsException closedError() {
+        return RpmsException.withoutStackTrace(ErrorCode.DISPATCHER_CLOSED, "Notification outbox is closed");
+    }
+
+    private static byte[] encodeEntry(Entry entry) {
+        byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+        byte[] channel = entry.channel.getBytes(StandardCharsets.UTF_8);
+        byte[] to = entry.to.getBytes(StandardCharsets.UTF_8);
+        byte[] subject = entry.subject.getBytes(StandardCharsets.UTF_8);
+        byte[] message = entry.message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + 2 + 4 * 4 + key.length + channel.length
+            + to.length + subject.length + message.length);
+        record.position(RECORD_HEADER);
+        record.put(ENQUEUE).put((byte) entry.type.ordinal());
+        putString(record, key);
+        putString(record, channel);
+        putString(record, to);
+        putString(record, subject);
+        record.put(message);
+        return record.array();
+    }
+
+    private static byte[] encodeKey(byte kind, String key) {
+        byte[] text = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + 1 + text.length);
+        record.position(RECORD_HEADER);
+        record.put(kind).put(text);
+        return record.array();
+    }
+
+    private static void putString(ByteBuffer record, byte[] text) {
+        record.putInt(text.length).put(text);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] text = new byte[record.getInt()];
+        record.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private void runWriter() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Record first = queue.poll(20, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                long start = System.nanoTime();
+                try {
+                    writeBatch(batch);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Outbox journal write failed: {0}", e.getMessage());
+                    abandon(batch, e);
+                    continue;
+                }
+                COMMIT_LATENCY.record(System.nanoTime() - start);
+                // Every entry in the batch is on disk now, so a crash can no longer lose a send
+                for (Record record : batch) {
+                    if (record.kind == ENQUEUE) {
+                        attempt(record.entry);
+                    }
+                }
+                deleteFinishedSegments();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Deleting finished outbox segments failed: {0}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch and fsyncs it once.
+     */
+    private void writeBatch(List<Record> batch) throws IOException {
+        for (Record record : batch) {
+            append(record.bytes);
+            Entry entry = record.entry;
+            if (record.kind == ENQUEUE) {
+                entry.segmentId = active.id;
+                liveEntries.merge(active.id, 1, Integer::sum);
+                continue;
+            }
+            // Entries are only finished after their enqueue was written, but a lost one must
+            // never be charged to whichever segment happens to have its default id
+            if (entry.segmentId != UNWRITTEN) {
+                liveEntries.merge(entry.segmentId, -1, Integer::sum);
+            }
+            if (record.kind == DONE) {
+                remember(entry.key);
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Fails the submits of a batch that could not be written, since their delivery would not
+     * survive a crash. Finished records in it are left to the entries being resent on restart.
+     */
+    private void abandon(List<Record> batch, IOException error) {
+        for (Record record : batch) {
+            Entry entry = record.entry;
+            if (record.kind != ENQUEUE || !pending.remove(entry.key, entry)) {
+                continue;
+            }
+            if (entry.segmentId != UNWRITTEN) {
+                liveEntries.merge(entry.segmentId, -1, Integer::sum);
+            }
+            entry.result.completeExceptionally(RpmsException.withoutStackTrace(ErrorCode.NOTIFICATION_FAILED,
+                "Outbox journal write failed: " + error.getMessage()));
+        }
+    }
+
+    /**
+     * Appends one encoded record to the active segment, starting a new one if it is full.
+     */
+    private void append(byte[] bytes) throws IOException {
+        if (active.size + bytes.length > segmentBytes) {
+            roll();
+        }
+        ByteBuffer.wrap(bytes).putInt(0, bytes.length - RECORD_HEADER);
+        crc.reset();
+        crc.update(bytes, RECORD_HEADER, bytes.length - RECORD_HEADER);
+        ByteBuffer.wrap(bytes).putInt(4, (int) crc.getValue());
+        active.map.put(active.size, bytes);
+        active.size += bytes.length;
+    }
+
+    private void sync() {
+        active.map.force(syncedTo, active.size - syncedTo);
+        syncedTo = active.size;
+    }
+
+    /**
+     * Notes that a delivered key's record is now in the active segment, unless the key has been
+     * forgotten meanwhile.
+     */
+    private void remember(String key) {
+        synchronized (delivered) {
+            if (delivered.containsKey(key)) {
+                hold(key, active.id);
+            }
+        }
+    }
+
+    /**
+     * Remembers a delivered key as recorded in a segment. Callers hold the delivered lock.
+     */
+    private void hold(String key, int segmentId) {
+        Integer previous = delivered.put(key, segmentId);
+        if (previous != null) {
+            release(previous);
+        }
+        if (segmentId != UNWRITTEN) {
+            deliveredKeys.merge(segmentId, 1, Integer::sum);
+        }
+    }
+
+    private void release(int segmentId) {
+        if (segmentId != UNWRITTEN) {
+            deliveredKeys.merge(segmentId, -1, (count, one) -> count + one == 0 ? null : count + one);
+        }
+    }
+
+    private boolean holdsDeliveredKeys(int segmentId) {
+        synchronized (delivered) {
+            return deliveredKeys.containsKey(segmentId);
+        }
+    }
+
+    private void deleteFinishedSegments() throws IOException {
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || liveEntries.getOrDefault(oldest.id, 0) > 0 || holdsDeliveredKeys(oldest.id)) {
+                return;
+            }
+            segments.pollFirstEntry();
+            liveEntries.remove(oldest.id);
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+        }
+    }
+
+    /**
+     * Loads existing segments, rebuilding the unfinished entries and truncating any torn tail.
+     */
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(id, file, channel);
+            int fileSize = (int) channel.size();
+            segment.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            segment.size = scan(segment, fileSize);
+            if (segment.size < fileSize) {
+                channel.truncate(segment.size);
+                segment.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+            segments.put(id, segment);
+        }
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            // Reopen the newest segment for writing
+            active = segments.lastEntry().getValue();
+            active.map = active.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, active.size));
+            syncedTo = active.size;
+        }
+    }
+
+    /**
+     * Replays a segment's records into the pending entries.
+     * @return Offset just past the last intact record.
+     */
+    private int scan(Segment segment, int fileSize) {
+        MappedByteBuffer map = segment.map;
+        int offset = 0;
+        while (offset + RECORD_HEADER <= fileSize) {
+            int length = map.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 1 || offset + RECORD_HEADER + length > fileSize) {
+                LOGGER.log(Level.WARNING, "Truncating torn record in {0} at {1}", new Object[] {segment.path, offset});
+                break;
+            }
+            byte[] body = new byte[length];
+            map.get(offset + RECORD_HEADER, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(offset + 4)) {
+                LOGGER.log(Level.WARNING, "Truncating corrupt record in {0} at {1}", new Object[] {segment.path, offset});
+                break;
+            }
+            replay(segment.id, ByteBuffer.wrap(body));
+            offset += RECORD_HEADER + length;
+        }
+        return offset;
+    }
+
+    private void replay(int segmentId, ByteBuffer body) {
+        byte kind = body.get();
+        if (kind == ENQUEUE) {
+            MessageType type = MessageType.values()[body.get()];
+            String key = getString(body);
+            String channel = getString(body);
+            String to = getString(body);
+            String subject = getString(body);
+            byte[] message = new byte[body.remaining()];
+            body.get(message);
+            Entry entry = new Entry(key, type, channel, to, subject, new String(message, StandardCharsets.UTF_8));
+            entry.segmentId = segmentId;
+            pending.put(key, entry);
+            liveEntries.merge(segmentId, 1, Integer::sum);
+            return;
+        }
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        String key = new String(bytes, StandardCharsets.UTF_8);
+        Entry entry = pending.remove(key);
+        if (entry != null) {
+            liveEntries.merge(entry.segmentId, -1, Integer::sum);
+        }
+        // The enqueue of a delivered key may be in a segment already deleted
+        if (kind == DONE) {
+            hold(key, segmentId);
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            seal(active);
+        }
+        int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("%s%010d%s", PREFIX, id, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel);
+        segment.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.put(id, segment);
+        active = segment;
+        syncedTo = 0;
+    }
+
+    /**
+     * Trims a full segment to its used size and remaps it read-only.
+     */
+    private void seal(Segment segment) throws IOException {
+        segment.map.force();
+        segment.channel.truncate(segment.size);
+        segment.map = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+    }
+}
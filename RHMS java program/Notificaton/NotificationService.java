@@ -1,15 +1,39 @@
 package notifier;
 
+import contactvalidation.ContactValidator;
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
- * Sends email and SMS alerts.
+ * Sends alerts through a set of named channels, by default email and SMS.
+ * Typed sends are routed to channels by {@link MessageType} and, when dispatch is asynchronous,
+ * queued in the type's priority lane.
+ * <p>
+ * Every channel is isolated from the others: it has its own circuit breaker, so a failing
+ * channel is refused in microseconds instead of being waited on, and synchronous sends run in
+ * the channel's own bulkhead, a bounded set of threads with a call timeout, so a hung channel
+ * never holds up the caller past the timeout or delays another channel.
  */
 public class NotificationService {
     private static final Logger LOGGER = Logger.getLogger(NotificationService.class.getName());
-    private final Notifiable emailNotifier;
-    private final Notifiable smsNotifier;
+    private static final int DEFAULT_MAX_CONCURRENT = 16;
+    private static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10_000;
+    private final Map<String, ChannelRegistry.Channel> channels;
+    private final Map<MessageType, ChannelRegistry.Channel[]> routes = new EnumMap<>(MessageType.class);
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    private final Map<String, ChannelDispatcher> dispatchers;
+    private final ChannelRegistry.Channel email;
+    private final ChannelRegistry.Channel sms;
 
     /**
      * Sets up email and SMS notifiers.
@@ -18,14 +42,214 @@ public class NotificationService {
      * @throws RpmsException If notifiers are null.
      */
     public NotificationService(Notifiable emailNotifier, Notifiable smsNotifier) throws RpmsException {
-        if (emailNotifier == null) {
-            throw new RpmsException("INVALID_INPUT", "Email notifier can't be null");
+        this(ChannelRegistry.of(emailNotifier, smsNotifier));
+    }
+
+    /**
+     * Sets up email and SMS notifiers with asynchronous, batched dispatch.
+     * Each channel gets its own bounded priority lanes and pool of virtual-thread workers.
+     * @param emailNotifier Email notification service.
+     * @param smsNotifier SMS notification service.
+     * @param queueCapacity Maximum queued messages per channel and lane before sends are rejected.
+     * @param workersPerChannel Worker threads per channel.
+     * @param maxBatchSize Maximum messages a worker takes from the queue at once.
+     * @throws RpmsException If notifiers are null or sizes are not positive.
+     */
+    public NotificationService(Notifiable emailNotifier, Notifiable smsNotifier,
+                               int queueCapacity, int workersPerChannel, int maxBatchSize) throws RpmsException {
+        this(ChannelRegistry.of(emailNotifier, smsNotifier), queueCapacity, workersPerChannel, maxBatchSize);
+    }
+
+    /**
+     * Sets up the channels of a registry with synchronous sends, each channel allowing 16 sends
+     * at once and waiting at most 10 seconds for one.
+     * @param registry Channels and routes.
+     * @throws RpmsException If the registry is null or empty.
+     */
+    public NotificationService(ChannelRegistry registry) throws RpmsException {
+        this(registry, DEFAULT_MAX_CONCURRENT, DEFAULT_CALL_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Sets up the channels of a registry with synchronous sends.
+     * @param registry Channels and routes.
+     * @param maxConcurrentPerChannel Most sends in progress per channel; more are refused at once.
+     * @param callTimeoutMillis Longest a caller waits for one channel's send.
+     * @throws RpmsException If the registry is null or empty, or a limit is not positive.
+     */
+    public NotificationService(ChannelRegistry registry, int maxConcurrentPerChannel, long callTimeoutMillis)
+            throws RpmsException {
+        this.channels = copyChannels(registry);
+        this.dispatchers = null;
+        this.email = channels.get(ChannelRegistry.EMAIL);
+        this.sms = channels.get(ChannelRegistry.SMS);
+        copyRoutes(registry);
+        createBulkheads(maxConcurrentPerChannel, callTimeoutMillis);
+    }
+
+    /**
+     * Sets up the channels of a registry with asynchronous, batched dispatch.
+     * @param registry Channels and routes.
+     * @param queueCapacity Maximum queued messages per channel and lane before sends are rejected.
+     * @param workersPerChannel Worker threads per channel; with more than one, one is kept for critical messages.
+     * @param maxBatchSize Maximum messages a worker takes from the queue at once.
+     * @throws RpmsException If the registry is null or empty, or sizes are not positive.
+     */
+    public NotificationService(ChannelRegistry registry, int queueCapacity, int workersPerChannel, int maxBatchSize)
+            throws RpmsException {
+        if (queueCapacity <= 0 || workersPerChannel <= 0 || maxBatchSize <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Queue capacity, workers and batch size must be positive");
+        }
+        this.channels = copyChannels(registry);
+        // Queued sends go through the bulkheads too, so they get the same call timeout; every
+        // worker can hold a permit, so only sends left hanging past the timeout fill a bulkhead
+        createBulkheads(Math.max(DEFAULT_MAX_CONCURRENT, workersPerChannel), DEFAULT_CALL_TIMEOUT_MILLIS);
+        this.dispatchers = new LinkedHashMap<>();
+        for (ChannelRegistry.Channel channel : channels.values()) {
+            dispatchers.put(channel.name, new ChannelDispatcher(channel, bulkheads.get(channel.name),
+                queueCapacity, workersPerChannel, maxBatchSize));
+        }
+        this.email = channels.get(ChannelRegistry.EMAIL);
+        this.sms = channels.get(ChannelRegistry.SMS);
+        copyRoutes(registry);
+    }
+
+    /**
+     * Checks if asynchronous dispatch is enabled.
+     * @return True if sends can be queued, false otherwise.
+     */
+    public boolean isAsync() {
+        return dispatchers != null;
+    }
+
+    /**
+     * Returns the state of a channel's circuit breaker.
+     * @param channelName Channel name.
+     * @return Breaker state.
+     * @throws RpmsException If no channel has that name.
+     */
+    public CircuitBreaker.State getBreakerState(String channelName) throws RpmsException {
+        ChannelRegistry.Channel channel = channels.get(channelName);
+        return require(channel, channelName).breaker.getState();
+    }
+
+    /**
+     * Sends a message on every channel its type is routed to and waits for all of them.
+     * The channels send in parallel, so a slow one does not delay the others.
+     * @param type Message type.
+     * @param contact Recipient.
+     * @param subject Message subject.
+     * @param message Message content.
+     * @throws RpmsException If any channel fails; the first failure in route order is rethrown.
+     */
+    public void send(MessageType type, ValidatedContact contact, String subject, String message) throws RpmsException {
+        ChannelRegistry.Channel[] route = routes.get(type);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(route.length);
+        for (ChannelRegistry.Channel channel : route) {
+            sends.add(bulkheads.get(channel.name).submit(channel.address.of(contact), subject, message));
+        }
+        RpmsException failure = null;
+        for (CompletableFuture<Void> send : sends) {
+            try {
+                Bulkhead.await(send);
+            } catch (RpmsException e) {
+                e.log(LOGGER);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Queues a message on every channel its type is routed to, in the type's priority lane.
+     * Falls back to a synchronous send when asynchronous dispatch is not enabled.
+     * @param type Message type.
+     * @param contact Recipient.
+     * @param subject Message subject.
+     * @param message Message content.
+     * @return Future completed when every channel has sent; fails if any channel fails.
+     */
+    public CompletableFuture<Void> sendAsync(MessageType type, ValidatedContact contact, String subject, String message) {
+        ChannelRegistry.Channel[] route = routes.get(type);
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[route.length];
+        for (int i = 0; i < route.length; i++) {
+            sends[i] = queue(type.getPriority(), route[i], route[i].address.of(contact), subject, message);
+        }
+        return CompletableFuture.allOf(sends);
+    }
+
+    /**
+     * Starts a send on every channel a type is routed to, all at once.
+     * With asynchronous dispatch each send is queued in the type's lane; otherwise each send
+     * starts in its channel's bulkhead, so a slow channel never holds up the others.
+     * @param type Message type.
+     * @param contact Recipient.
+     * @param subject Message subject.
+     * @param message Message content.
+     * @return One future per channel, keyed by channel name in route order.
+     */
+    public Map<String, CompletableFuture<Void>> fanOut(MessageType type, ValidatedContact contact,
+            String subject, String message) {
+        Map<String, CompletableFuture<Void>> sends = new LinkedHashMap<>();
+        for (ChannelRegistry.Channel channel : routes.get(type)) {
+            String to = channel.address.of(contact);
+            if (dispatchers != null) {
+                sends.put(channel.name, queue(type.getPriority(), channel, to, subject, message));
+                continue;
+            }
+            sends.put(channel.name, bulkheads.get(channel.name).submit(to, subject, message));
+        }
+        return sends;
+    }
+
+    /**
+     * Sends one message to many recipients on every channel its type is routed to, and waits
+     * until every send has finished. Each recipient's contact details are checked and their
+     * message rendered only when their turn comes, and each channel is given at most half the
+     * sends it can take at once, so memory stays flat however many recipients there are and
+     * other traffic keeps room. Sends refused because a channel is full are retried with backoff.
+     * Recipients with invalid contact details are skipped and reported to the listener, and so
+     * are messages that fail to render. Even if it fails, the broadcast returns only after every
+     * send it started has finished, so the listener hears nothing after it returns.
+     * @param type Message type; with asynchronous dispatch, sends go to its priority lane.
+     * @param recipients Recipients, read once.
+     * @param template Addresses and message of each recipient.
+     * @param listener Receives per-recipient results and running totals.
+     * @param <R> Recipient type.
+     * @return Final totals.
+     * @throws RpmsException If an argument is null or the broadcast is interrupted.
+     */
+    public <R> BroadcastReport broadcast(MessageType type, Iterator<? extends R> recipients,
+            BroadcastTemplate<? super R> template, BroadcastListener<? super R> listener) throws RpmsException {
+        if (type == null || recipients == null || template == null || listener == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Broadcast needs a type, recipients, template and listener");
+        }
+        return new Broadcaster<R>(this, type, template, listener).run(recipients);
+    }
+
+    /**
+     * Sends one message to a stream of recipients; see
+     * {@link #broadcast(MessageType, Iterator, BroadcastTemplate, BroadcastListener)}.
+     * @param type Message type.
+     * @param recipients Recipients; the stream is consumed and closed.
+     * @param template Addresses and message of each recipient.
+     * @param listener Receives per-recipient results and running totals.
+     * @param <R> Recipient type.
+     * @return Final totals.
+     * @throws RpmsException If an argument is null or the broadcast is interrupted.
+     */
+    public <R> BroadcastReport broadcast(MessageType type, Stream<? extends R> recipients,
+            BroadcastTemplate<? super R> template, BroadcastListener<? super R> listener) throws RpmsException {
+        if (recipients == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Broadcast needs a type, recipients, template and listener");
         }
-        if (smsNotifier == null) {
-            throw new RpmsException("INVALID_INPUT", "SMS notifier can't be null");
+        try (Stream<? extends R> stream = recipients) {
+            return broadcast(type, stream.iterator(), template, listener);
         }
-        this.emailNotifier = emailNotifier;
-        this.smsNotifier = smsNotifier;
     }
 
     /**
@@ -36,15 +260,21 @@ public class NotificationService {
      * @throws RpmsException If sending fails.
      */
     public void sendEmailAlert(String email, String subject, String message) throws RpmsException {
-        if (email == null || email.trim().isEmpty() || !email.matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid email address");
-        }
-        try {
-            emailNotifier.sendNotification(email, subject, message);
-        } catch (RpmsException e) {
-            e.log(LOGGER);
-            throw e;
+        if (!ContactValidator.isValidEmail(email)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid email address");
         }
+        deliver(require(this.email, ChannelRegistry.EMAIL), email, subject, message);
+    }
+
+    /**
+     * Sends an email alert to an already validated contact.
+     * @param contact Recipient.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @throws RpmsException If sending fails.
+     */
+    public void sendEmailAlert(ValidatedContact contact, String subject, String message) throws RpmsException {
+        deliver(require(email, ChannelRegistry.EMAIL), contact.getEmail(), subject, message);
     }
 
     /**
@@ -55,14 +285,230 @@ public class NotificationService {
      * @throws RpmsException If sending fails.
      */
     public void sendSMSAlert(String phoneNumber, String subject, String message) throws RpmsException {
-        if (phoneNumber == null || phoneNumber.trim().isEmpty() || !phoneNumber.matches("\\+?[1-9]\\d{1,14}")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid phone number");
+        if (!ContactValidator.isValidPhone(phoneNumber)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid phone number");
         }
+        deliver(require(sms, ChannelRegistry.SMS), phoneNumber, subject, message);
+    }
+
+    /**
+     * Sends an SMS alert to an already validated contact.
+     * @param contact Recipient.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @throws RpmsException If sending fails.
+     */
+    public void sendSMSAlert(ValidatedContact contact, String subject, String message) throws RpmsException {
+        deliver(require(sms, ChannelRegistry.SMS), contact.getPhone(), subject, message);
+    }
+
+    /**
+     * Queues an email alert in the normal lane without waiting for delivery.
+     * Falls back to a synchronous send when asynchronous dispatch is not enabled.
+     * @param email Recipient's email.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @return Future completed when the email is sent; fails if the queue is full or sending fails.
+     * @throws RpmsException If the email address is invalid.
+     */
+    public CompletableFuture<Void> sendEmailAlertAsync(String email, String subject, String message)
+            throws RpmsException {
+        if (!ContactValidator.isValidEmail(email)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid email address");
+        }
+        return queue(MessageType.Priority.NORMAL, require(this.email, ChannelRegistry.EMAIL), email, subject, message);
+    }
+
+    /**
+     * Queues an email alert to an already validated contact in the type's priority lane.
+     * @param type Message type.
+     * @param contact Recipient.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @return Future completed when the email is sent; fails if the queue is full or sending fails.
+     */
+    public CompletableFuture<Void> sendEmailAlertAsync(MessageType type, ValidatedContact contact,
+            String subject, String message) {
+        if (email == null) {
+            return CompletableFuture.failedFuture(unknownChannel(ChannelRegistry.EMAIL));
+        }
+        return queue(type.getPriority(), email, contact.getEmail(), subject, message);
+    }
+
+    /**
+     * Queues an SMS alert in the normal lane without waiting for delivery.
+     * Falls back to a synchronous send when asynchronous dispatch is not enabled.
+     * @param phoneNumber Recipient's phone number.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @return Future completed when the SMS is sent; fails if the queue is full or sending fails.
+     * @throws RpmsException If the phone number is invalid.
+     */
+    public CompletableFuture<Void> sendSMSAlertAsync(String phoneNumber, String subject, String message)
+            throws RpmsException {
+        if (!ContactValidator.isValidPhone(phoneNumber)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid phone number");
+        }
+        return queue(MessageType.Priority.NORMAL, require(sms, ChannelRegistry.SMS), phoneNumber, subject, message);
+    }
+
+    /**
+     * Queues an SMS alert to an already validated contact in the type's priority lane.
+     * @param type Message type.
+     * @param contact Recipient.
+     * @param subject Alert subject.
+     * @param message Alert message.
+     * @return Future completed when the SMS is sent; fails if the queue is full or sending fails.
+     */
+    public CompletableFuture<Void> sendSMSAlertAsync(MessageType type, ValidatedContact contact,
+            String subject, String message) {
+        if (sms == null) {
+            return CompletableFuture.failedFuture(unknownChannel(ChannelRegistry.SMS));
+        }
+        return queue(type.getPriority(), sms, contact.getPhone(), subject, message);
+    }
+
+    /**
+     * Stops accepting asynchronous sends and delivers everything already queued.
+     * @param timeoutMillis Maximum time to wait for the queues to drain.
+     * @return True if every channel drained in time, false otherwise.
+     */
+    public boolean shutdown(long timeoutMillis) {
+        if (dispatchers == null) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        boolean drained = true;
+        for (ChannelDispatcher dispatcher : dispatchers.values()) {
+            long remaining = Math.max(0, timeoutMillis - (System.currentTimeMillis() - start));
+            drained &= dispatcher.shutdown(remaining);
+        }
+        if (!drained) {
+            LOGGER.warning("Notification queues not drained before timeout");
+        }
+        return drained;
+    }
+
+    private static Map<String, ChannelRegistry.Channel> copyChannels(ChannelRegistry registry) throws RpmsException {
+        if (registry == null || registry.channels().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "At least one channel must be registered");
+        }
+        return new LinkedHashMap<>(registry.channels());
+    }
+
+    private void createBulkheads(int maxConcurrent, long timeoutMillis) throws RpmsException {
+        if (maxConcurrent <= 0 || timeoutMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Concurrent sends and call timeout must be positive");
+        }
+        for (ChannelRegistry.Channel channel : channels.values()) {
+            bulkheads.put(channel.name, new Bulkhead(channel, maxConcurrent, timeoutMillis));
+        }
+    }
+
+    private void copyRoutes(ChannelRegistry registry) {
+        for (MessageType type : MessageType.values()) {
+            List<String> names = registry.routeFor(type);
+            ChannelRegistry.Channel[] route = new ChannelRegistry.Channel[names.size()];
+            for (int i = 0; i < route.length; i++) {
+                route[i] = channels.get(names.get(i));
+            }
+            routes.put(type, route);
+        }
+    }
+
+    private static ChannelRegistry.Channel require(ChannelRegistry.Channel channel, String name)
+            throws RpmsException {
+        if (channel == null) {
+            throw unknownChannel(name);
+        }
+        return channel;
+    }
+
+    private static RpmsException unknownChannel(String name) {
+        return new RpmsException(ErrorCode.UNKNOWN_CHANNEL, "No " + name + " channel registered");
+    }
+
+    private void deliver(ChannelRegistry.Channel channel, String to, String subject, String message)
+            throws RpmsException {
         try {
-            smsNotifier.sendNotification(phoneNumber, subject, message);
+            bulkheads.get(channel.name).call(to, subject, message);
         } catch (RpmsException e) {
             e.log(LOGGER);
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the channels a type is routed to.
+     * @param type Message type.
+     * @return Channels in route order; not to be modified.
+     */
+    ChannelRegistry.Channel[] route(MessageType type) {
+        return routes.get(type);
+    }
+
+    /**
+     * Returns a registered channel by name.
+     * @param name Channel name.
+     * @return Channel, or null if none has that name.
+     */
+    ChannelRegistry.Channel channel(String name) {
+        return channels.get(name);
+    }
+
+    /**
+     * Starts a send on one channel without waiting: queued in the type's lane when dispatch is
+     * asynchronous, otherwise started in the channel's bulkhead.
+     * @return Future completed when the channel has sent.
+     */
+    CompletableFuture<Void> start(MessageType type, ChannelRegistry.Channel channel, String to,
+            String subject, String message) {
+        if (dispatchers == null) {
+            return bulkheads.get(channel.name).submit(to, subject, message);
+        }
+        return dispatchers.get(channel.name).submit(type.getPriority(), to, subject, message);
+    }
+
+    /**
+     * Returns how many sends a channel accepts at once through {@link #start}.
+     * @param channel Channel.
+     * @return Lane capacity with asynchronous dispatch, otherwise bulkhead size.
+     */
+    int capacity(ChannelRegistry.Channel channel) {
+        return dispatchers == null ? bulkheads.get(channel.name).capacity() : dispatchers.get(channel.name).capacity();
+    }
+
+    /**
+     * Sends on one channel, queued in the given lane when dispatch is asynchronous.
+     * @return Future completed when the channel has sent.
+     */
+    CompletableFuture<Void> queue(MessageType.Priority priority, ChannelRegistry.Channel channel, String to,
+            String subject, String message) {
+        if (dispatchers == null) {
+            return runNow(() -> deliver(channel, to, subject, message));
+        }
+        return dispatchers.get(channel.name).submit(priority, to, subject, message);
+    }
+
+    /**
+     * A send that may throw RpmsException.
+     */
+    @FunctionalInterface
+    private interface Send {
+        void run() throws RpmsException;
+    }
+
+    /**
+     * Runs a send on the caller's thread and wraps the outcome in a future.
+     * @param send Send to run.
+     * @return Completed or failed future.
+     */
+    private static CompletableFuture<Void> runNow(Send send) {
+        try {
+            send.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RpmsException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
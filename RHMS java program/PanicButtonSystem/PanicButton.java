@@ -1,8 +1,23 @@
 package panicbuttonsystem;
 
+import emergencyalertsystem.CustomDate;
 import emergencyalertsystem.EmergencyAlert;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import notifier.MessageType;
+import notifier.NotificationOutbox;
 import notifier.NotificationService;
+import templates.TemplateCatalog;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -10,6 +25,7 @@ import java.util.logging.Logger;
  */
 public class PanicButton extends EmergencyAlert {
     private static final Logger LOGGER = Logger.getLogger(PanicButton.class.getName());
+    private static final LatencyHistogram FIRST_DELIVERY_LATENCY = Metrics.histogram("panic.firstDelivery");
 
     /**
      * Sets up panic button with notifier and contacts.
@@ -29,29 +45,123 @@ public class PanicButton extends EmergencyAlert {
      * @throws RpmsException If sending fails critically.
      */
     public boolean press() throws RpmsException {
-        String message = "PANIC BUTTON ACTIVATED! Immediate assistance required!";
+        String message = TemplateCatalog.current().panic();
         boolean success = true;
 
         try {
-            getNotifier().sendEmailAlert(getEmergencyEmail(), "Panic Alert", message);
-        } catch (RpmsException e) {
-            e.log(LOGGER);
-            success = false;
-        }
-
-        try {
-            getNotifier().sendSMSAlert(getEmergencyNumber(), "Panic Alert", message);
+            // Goes to every channel routed for panics, each tried even if another fails
+            getNotifier().send(MessageType.PANIC, getEmergencyContact(), "Panic Alert", message);
         } catch (RpmsException e) {
             e.log(LOGGER);
             success = false;
         }
 
         if (success) {
-            LOGGER.info("Panic alert sent at " + new CustomDate(2025, 4, 22, 9));
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info("Panic alert sent at " + new CustomDate(2025, 4, 22, 9));
+            }
         } else {
             LOGGER.warning("Some panic alerts failed");
         }
 
         return success;
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands the panic alert to a durable outbox, which retries each channel until it delivers,
+     * across restarts if need be. Handing over the same press again, e.g. when the device resends
+     * it, does not repeat the alert.
+     * @param outbox Outbox journaling the alert.
+     * @param pressId Identifier of this press, the same each time it is handed over.
+     * @return Future completed when every routed channel has delivered.
+     * @throws RpmsException If the outbox is null or the press id is empty.
+     */
+    public CompletableFuture<Void> press(NotificationOutbox outbox, String pressId) throws RpmsException {
+        if (outbox == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Outbox can't be null");
+        }
+        if (pressId == null || pressId.isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Press id can't be empty");
+        }
+        String key = "panic:" + getEmergencyContact().getEmail() + ":" + pressId;
+        return outbox.submit(MessageType.PANIC, key, getEmergencyContact(), "Panic Alert", TemplateCatalog.current().panic());
+    }
+
+    /**
+     * Returns press-to-first-delivery latencies of fan-out presses, in nanoseconds, shared by
+     * every panic button.
+     * @return Latency histogram.
+     */
+    public LatencyHistogram getFirstDeliveryLatency() {
+        return FIRST_DELIVERY_LATENCY;
+    }
+
+    /**
+     * Sends the panic alert on every routed channel at once and returns as soon as one channel
+     * delivers, every channel has finished, or the deadline passes. Channels still sending are
+     * left to finish in the background and reported as pending.
+     * @param deadlineMillis Longest time to wait.
+     * @return Per-channel outcome.
+     * @throws RpmsException If the deadline is not positive.
+     */
+    public PanicResult pressWithin(long deadlineMillis) throws RpmsException {
+        if (deadlineMillis <= 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Deadline must be positive");
+        }
+        long start = System.nanoTime();
+        AtomicBoolean recorded = new AtomicBoolean();
+        CompletableFuture<Void> delivered = new CompletableFuture<>();
+        Map<String, CompletableFuture<Long>> sends = new LinkedHashMap<>();
+        getNotifier().fanOut(MessageType.PANIC, getEmergencyContact(), "Panic Alert", TemplateCatalog.current().panic())
+            .forEach((channel, send) -> sends.put(channel, send.thenApply(ok -> {
+                // Recorded even after the deadline so the histogram shows true delivery latency
+                long latency = System.nanoTime() - start;
+                if (recorded.compareAndSet(false, true)) {
+                    FIRST_DELIVERY_LATENCY.record(latency);
+                    delivered.complete(null);
+                }
+                return latency;
+            })));
+        CompletableFuture<Void> finished = CompletableFuture.allOf(sends.values().toArray(new CompletableFuture<?>[0]));
+        boolean expired = false;
+        try {
+            CompletableFuture.anyOf(delivered, finished).get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            expired = true;
+        } catch (ExecutionException e) {
+            // Every channel finished and at least one failed; the statuses below say which
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Each send is looked at once, and the first delivery taken from the same look, so the
+        // result never reports a delivery its statuses don't show
+        Map<String, PanicResult.Status> statuses = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        long firstDelivery = -1;
+        for (Map.Entry<String, CompletableFuture<Long>> send : sends.entrySet()) {
+            CompletableFuture<Long> future = send.getValue();
+            if (!future.isDone()) {
+                statuses.put(send.getKey(), PanicResult.Status.PENDING);
+            } else if (future.isCompletedExceptionally()) {
+                statuses.put(send.getKey(), PanicResult.Status.FAILED);
+                // Failures reach the derived future wrapped in a CompletionException
+                errors.put(send.getKey(), future.handle((ok, e) -> e.getCause() != null ? e.getCause().getMessage()
+                    : e.getMessage()).join());
+            } else {
+                statuses.put(send.getKey(), PanicResult.Status.DELIVERED);
+                long latency = future.join();
+                if (firstDelivery < 0 || latency < firstDelivery) {
+                    firstDelivery = latency;
+                }
+            }
+        }
+        PanicResult result = new PanicResult(statuses, errors, firstDelivery, expired);
+        if (result.isDelivered()) {
+            LOGGER.log(Level.INFO, "Panic alert delivered: {0}", result);
+        } else {
+            LOGGER.log(Level.WARNING, "Panic alert not delivered: {0}", result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+package panicbuttonsystem;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a fan-out panic press, per channel, as it stood when the press returned.
+ */
+public final class PanicResult {
+    /**
+     * State of one channel's send.
+     */
+    public enum Status {
+        DELIVERED,
+        FAILED,
+        // Still in flight when the press returned; the send carries on detached
+        PENDING
+    }
+
+    private final Map<String, Status> statuses;
+    private final Map<String, String> errors;
+    private final long firstDeliveryNanos;
+    private final boolean deadlineExpired;
+
+    PanicResult(Map<String, Status> statuses, Map<String, String> errors, long firstDeliveryNanos,
+            boolean deadlineExpired) {
+        this.statuses = Collections.unmodifiableMap(statuses);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.firstDeliveryNanos = firstDeliveryNanos;
+        this.deadlineExpired = deadlineExpired;
+    }
+
+    /*
+     * Getter
+     */
+    public Map<String, Status> getStatuses() {
+        return statuses;
+    }
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+    public long getFirstDeliveryNanos() {
+        return firstDeliveryNanos;
+    }
+    public boolean isDeadlineExpired() {
+        return deadlineExpired;
+    }
+
+    /**
+     * Checks if at least one channel delivered the alert.
+     * @return True if delivered on any channel.
+     */
+    public boolean isDelivered() {
+        return firstDeliveryNanos >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "PanicResult" + statuses + (deadlineExpired ? " (deadline expired)" : "")
+            + (isDelivered() ? " first delivery " + firstDeliveryNanos / 1000 + "us" : "");
+    }
+}
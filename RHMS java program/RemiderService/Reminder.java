@@ -1,9 +1,25 @@
 package reminderservice;
 
+import contactvalidation.ValidatedContact;
 import emergencyalertsystem.CustomDate;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
+import notifier.BroadcastListener;
+import notifier.BroadcastReport;
+import notifier.BroadcastTemplate;
+import notifier.MessageType;
+import notifier.NotificationOutbox;
 import notifier.NotificationService;
+import templates.TemplateCatalog;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Sends reminders via email and SMS.
@@ -12,8 +28,7 @@ public class Reminder {
     private static final Logger LOGGER = Logger.getLogger(Reminder.class.getName());
     private final NotificationService notifier;
     private final String reminderMessage;
-    private final String receiverEmail;
-    private final String receiverPhone;
+    private final ValidatedContact receiver;
     private final CustomDate dueDate;
 
     /**
@@ -28,46 +43,114 @@ public class Reminder {
     public Reminder(String receiverEmail, String receiverPhone, String reminderMessage,
                     CustomDate dueDate, NotificationService notifier) throws RpmsException {
         if (notifier == null) {
-            throw new RpmsException("INVALID_INPUT", "Notifier can't be null");
-        }
-        if (receiverEmail == null || receiverEmail.trim().isEmpty() || !receiverEmail.matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid recipient email");
-        }
-        if (receiverPhone == null || receiverPhone.trim().isEmpty() || !receiverPhone.matches("\\+?[1-9]\\d{1,14}")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid recipient phone");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Notifier can't be null");
         }
+        ValidatedContact contact = ValidatedContact.of(receiverEmail, receiverPhone,
+            "Invalid recipient email", "Invalid recipient phone");
         if (reminderMessage == null || reminderMessage.trim().isEmpty()) {
-            throw new RpmsException("INVALID_INPUT", "Reminder message can't be empty");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Reminder message can't be empty");
         }
         if (dueDate == null) {
-            throw new RpmsException("INVALID_INPUT", "Due date can't be null");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Due date can't be null");
         }
         this.notifier = notifier;
         this.reminderMessage = reminderMessage;
-        this.receiverEmail = receiverEmail;
-        this.receiverPhone = receiverPhone;
+        this.receiver = contact;
         this.dueDate = dueDate;
     }
 
+    /*
+     * Getter
+     */
+    public String getReceiverEmail() {
+        return receiver.getEmail();
+    }
+    public String getReceiverPhone() {
+        return receiver.getPhone();
+    }
+    public ValidatedContact getReceiver() {
+        return receiver;
+    }
+    public String getReminderMessage() {
+        return reminderMessage;
+    }
+    public CustomDate getDueDate() {
+        return dueDate;
+    }
+    public NotificationService getNotifier() {
+        return notifier;
+    }
+
+    /**
+     * Sends one reminder to many recipients without creating a reminder per recipient.
+     * The text is rendered once and shared; each recipient's contact details are checked as
+     * their turn comes, and invalid ones are reported to the listener and skipped.
+     * @param notifier Notification service.
+     * @param recipients Recipients, read once.
+     * @param email Reads a recipient's email address.
+     * @param phone Reads a recipient's phone number.
+     * @param reminderMessage Reminder message.
+     * @param dueDate Due date for reminder.
+     * @param listener Receives per-recipient results and running totals.
+     * @param <R> Recipient type.
+     * @return Final totals.
+     * @throws RpmsException If an argument is missing or the broadcast is interrupted.
+     */
+    public static <R> BroadcastReport sendAll(NotificationService notifier, Stream<? extends R> recipients,
+            Function<? super R, String> email, Function<? super R, String> phone, String reminderMessage,
+            CustomDate dueDate, BroadcastListener<? super R> listener) throws RpmsException {
+        if (notifier == null || email == null || phone == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Notifier and address readers can't be null");
+        }
+        if (reminderMessage == null || reminderMessage.trim().isEmpty()) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Reminder message can't be empty");
+        }
+        if (dueDate == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Due date can't be null");
+        }
+        String message = TemplateCatalog.current().reminder(reminderMessage, dueDate.toString());
+        return notifier.broadcast(MessageType.REMINDER, recipients, new BroadcastTemplate<R>() {
+            @Override
+            public String email(R recipient) {
+                return email.apply(recipient);
+            }
+
+            @Override
+            public String phone(R recipient) {
+                return phone.apply(recipient);
+            }
+
+            @Override
+            public String subject(R recipient) {
+                return "Reminder";
+            }
+
+            @Override
+            public void render(R recipient, StringBuilder out) {
+                out.append(message);
+            }
+        }, listener);
+    }
+
     /**
      * Sends the reminder via email and SMS.
      * @return True if both sent, false if either failed.
      */
     public boolean sendReminder() {
-        String message = String.format("REMINDER: %s | Due Date: %s", reminderMessage, dueDate);
+        String message = TemplateCatalog.current().reminder(reminderMessage, dueDate.toString());
         boolean success = true;
 
         try {
-            notifier.sendEmailAlert(receiverEmail, "Reminder", message);
-            LOGGER.info("Email reminder sent to " + receiverEmail);
+            notifier.sendEmailAlert(receiver, "Reminder", message);
+            LOGGER.info(() -> "Email reminder sent to " + receiver.getEmail());
         } catch (RpmsException e) {
             e.log(LOGGER);
             success = false;
         }
 
         try {
-            notifier.sendSMSAlert(receiverPhone, "Reminder", message);
-            LOGGER.info("SMS reminder sent to " + receiverPhone);
+            notifier.sendSMSAlert(receiver, "Reminder", message);
+            LOGGER.info(() -> "SMS reminder sent to " + receiver.getPhone());
         } catch (RpmsException e) {
             e.log(LOGGER);
             success = false;
@@ -75,4 +158,76 @@ public class Reminder {
 
         return success;
     }
-}
\ No newline at end of file
+
+    /**
+     * Queues the reminder on both channels without waiting for delivery.
+     * @return Future completed with true if both sent, false if either failed.
+     */
+    public CompletableFuture<Boolean> sendReminderAsync() {
+        String message = TemplateCatalog.current().reminder(reminderMessage, dueDate.toString());
+        CompletableFuture<Boolean> email = queue(() -> notifier.sendEmailAlertAsync(MessageType.REMINDER, receiver, "Reminder", message));
+        CompletableFuture<Boolean> sms = queue(() -> notifier.sendSMSAlertAsync(MessageType.REMINDER, receiver, "Reminder", message));
+        return email.thenCombine(sms, (emailSent, smsSent) -> emailSent && smsSent);
+    }
+
+    /**
+     * Hands the reminder to a durable outbox, which retries each channel until it delivers,
+     * across restarts if need be. Sending the same reminder again does not repeat it.
+     * @param outbox Outbox journaling the reminder.
+     * @return Future completed when every channel reminders are routed to has delivered.
+     * @throws RpmsException If the outbox is null.
+     */
+    public CompletableFuture<Void> sendReminder(NotificationOutbox outbox) throws RpmsException {
+        if (outbox == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Outbox can't be null");
+        }
+        String message = TemplateCatalog.current().reminder(reminderMessage, dueDate.toString());
+        // Same recipient, due date and text make the same key, so a rescheduled send is dropped;
+        // the text goes in as a SHA-256 digest, since a 32-bit hash would let two different
+        // reminders for the same hour collide and the second would never be sent
+        String key = "reminder:" + receiver.getEmail() + ":" + dueDate + ":" + sha256(reminderMessage);
+        return outbox.submit(MessageType.REMINDER, key, receiver, "Reminder", message);
+    }
+
+    /**
+     * Returns the SHA-256 digest of a text.
+     * @param text Text to digest.
+     * @return Digest as lowercase hex.
+     */
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts an asynchronous send and maps its outcome to a success flag.
+     * @param send Send to start.
+     * @return Future completed with true if sent, false otherwise.
+     */
+    private CompletableFuture<Boolean> queue(AsyncSend send) {
+        try {
+            return send.start().handle((ok, e) -> {
+                if (e != null) {
+                    LOGGER.log(Level.WARNING, "Reminder send failed: {0}", e.getMessage());
+                    return false;
+                }
+                return true;
+            });
+        } catch (RpmsException e) {
+            e.log(LOGGER);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Starts an asynchronous send that may reject its input.
+     */
+    @FunctionalInterface
+    private interface AsyncSend {
+        CompletableFuture<Void> start() throws RpmsException;
+    }
+}
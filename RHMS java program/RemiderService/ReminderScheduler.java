@@ -0,0 +1,389 @@
+package reminderservice;
+
+import emergencyalertsystem.CustomDate;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import notifier.NotificationService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds pending reminders in a hierarchical timing wheel and sends each one in its due hour.
+ * <p>
+ * Time is counted in wall-clock hours since 1970-01-01T00:00. Level 0 has one slot per hour for
+ * the next 256 hours; levels 1 and 2 hold coarser ranges and are cascaded down as the wheel turns.
+ * Entries live in parallel primitive arrays linked into per-slot lists, so scheduling and
+ * cancelling are O(1) and the wheel adds only a few words per reminder. Reminders scheduled when
+ * already due wait in a separate list that every tick empties, so they are not held for an hour.
+ */
+public class ReminderScheduler {
+    private static final Logger LOGGER = Logger.getLogger(ReminderScheduler.class.getName());
+    private static final int[] LEVEL_BITS = {8, 6, 6};
+    private static final int[] LEVEL_SHIFT = {0, 8, 14};
+    private static final int LEVELS = LEVEL_BITS.length;
+    private static final int OVERFLOW = -2;
+    private static final int DUE = -3;
+    private static final int FREE = -1;
+    private static final int NONE = -1;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final LongSupplier clockHours;
+    private final int[][] heads = new int[LEVELS][];
+    private int overflowHead = NONE;
+    private int dueHead = NONE;
+    private long currentHour;
+
+    // Entry storage, indexed by entry id
+    private long[] due = new long[1024];
+    private int[] next = new int[1024];
+    private int[] prev = new int[1024];
+    private int[] slot = new int[1024];
+    private int[] generation = new int[1024];
+    private Reminder[] payload = new Reminder[1024];
+    private int freeHead = NONE;
+    private int used;
+    private int size;
+
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a scheduler driven by the local wall clock.
+     */
+    public ReminderScheduler() {
+        this(() -> LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    /**
+     * Creates a scheduler driven by a custom clock.
+     * @param clockHours Supplies the current hour, counted like {@link CustomDate#toEpochHour()}.
+     */
+    public ReminderScheduler(LongSupplier clockHours) {
+        this.clockHours = clockHours;
+        for (int level = 0; level < LEVELS; level++) {
+            heads[level] = new int[1 << LEVEL_BITS[level]];
+            Arrays.fill(heads[level], NONE);
+        }
+        Arrays.fill(slot, FREE);
+        this.currentHour = clockHours.getAsLong();
+    }
+
+    /**
+     * Schedules a reminder for its due hour. Reminders already due fire on the next tick.
+     * @param reminder The reminder.
+     * @return Handle for {@link #cancel(long)}.
+     * @throws RpmsException If reminder is null.
+     */
+    public synchronized long schedule(Reminder reminder) throws RpmsException {
+        if (reminder == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Reminder can't be null");
+        }
+        int id = allocate();
+        due[id] = reminder.getDueDate().toEpochHour();
+        payload[id] = reminder;
+        place(id, false);
+        size++;
+        return ((long) generation[id] << 32) | id;
+    }
+
+    /**
+     * Cancels a scheduled reminder.
+     * @param handle Handle returned by {@link #schedule(Reminder)}.
+     * @return True if the reminder was pending and is now cancelled.
+     */
+    public synchronized boolean cancel(long handle) {
+        int id = (int) handle;
+        if (id < 0 || id >= used || slot[id] == FREE || generation[id] != (int) (handle >>> 32)) {
+            return false;
+        }
+        unlink(id);
+        release(id);
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of pending reminders.
+     * @return Pending count.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Turns the wheel up to the given hour and sends every reminder that became due.
+     * @param hour Target hour.
+     * @return Number of reminders sent.
+     */
+    public int advanceTo(long hour) {
+        List<Reminder> batch = new ArrayList<>();
+        synchronized (this) {
+            int id = dueHead;
+            dueHead = NONE;
+            collect(id, batch);
+            while (currentHour < hour) {
+                currentHour++;
+                cascade();
+                int level0 = (int) (currentHour & (heads[0].length - 1));
+                id = heads[0][level0];
+                heads[0][level0] = NONE;
+                collect(id, batch);
+            }
+        }
+        deliver(batch);
+        return batch.size();
+    }
+
+    /**
+     * Starts a background thread that advances the wheel to the clock's current hour.
+     * @param pollMillis How often to check the clock.
+     */
+    public synchronized void start(long pollMillis) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reminder-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                advanceTo(clockHours.getAsLong());
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task and stop every later reminder
+                LOGGER.log(Level.SEVERE, "Reminder tick failed", e);
+            }
+        }, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdown();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Writes all pending reminders to a snapshot file, replacing it atomically.
+     * @param file Snapshot file.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void saveSnapshot(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(size);
+            for (int id = 0; id < used; id++) {
+                if (slot[id] == FREE) {
+                    continue;
+                }
+                Reminder reminder = payload[id];
+                CustomDate date = reminder.getDueDate();
+                out.writeShort(date.getYear());
+                out.writeByte(date.getMonth());
+                out.writeByte(date.getDay());
+                out.writeByte(date.getHour());
+                out.writeUTF(reminder.getReceiverEmail());
+                out.writeUTF(reminder.getReceiverPhone());
+                out.writeUTF(reminder.getReminderMessage());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Schedules every reminder stored in a snapshot file.
+     * @param file Snapshot file.
+     * @param notifier Notification service the restored reminders send through.
+     * @return Number of reminders restored.
+     * @throws IOException If the file cannot be read.
+     * @throws RpmsException If the file holds an invalid reminder.
+     */
+    public int loadSnapshot(Path file, NotificationService notifier) throws IOException, RpmsException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported reminder snapshot version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                CustomDate date = new CustomDate(in.readShort(), in.readByte(), in.readByte(), in.readByte());
+                String email = in.readUTF();
+                String phone = in.readUTF();
+                String message = in.readUTF();
+                schedule(new Reminder(email, phone, message, date, notifier));
+            }
+            LOGGER.log(Level.INFO, "Restored {0} reminders from {1}", new Object[] {count, file});
+            return count;
+        }
+    }
+
+    /**
+     * Sends a batch of due reminders through their notification service.
+     * @param batch Due reminders.
+     */
+    private void deliver(List<Reminder> batch) {
+        for (Reminder reminder : batch) {
+            try {
+                if (reminder.getNotifier().isAsync()) {
+                    reminder.sendReminderAsync();
+                } else if (!reminder.sendReminder()) {
+                    LOGGER.log(Level.WARNING, "Reminder failed for {0}", reminder.getReceiverEmail());
+                }
+            } catch (RuntimeException e) {
+                // One broken reminder must not hold back the rest of the batch
+                LOGGER.log(Level.WARNING, e, () -> "Reminder for " + reminder.getReceiverEmail() + " threw");
+            }
+        }
+    }
+
+    /**
+     * Takes every entry of a slot's list out of the wheel and adds its reminder to a batch.
+     * @param id First entry of the list.
+     * @param batch Reminders to send.
+     */
+    private void collect(int id, List<Reminder> batch) {
+        while (id != NONE) {
+            int following = next[id];
+            batch.add(payload[id]);
+            release(id);
+            size--;
+            id = following;
+        }
+    }
+
+    /**
+     * Moves entries from coarser levels down when the finer levels wrap around.
+     * Higher levels go first, since they can refill the lower slot being emptied this hour.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top + 1 < LEVELS && (currentHour & ((1L << LEVEL_SHIFT[top + 1]) - 1)) == 0) {
+            top++;
+        }
+        if (top == LEVELS - 1 && (currentHour & ((1L << (LEVEL_SHIFT[top] + LEVEL_BITS[top])) - 1)) == 0) {
+            // The whole wheel wrapped, so the overflow list may now fit
+            int id = overflowHead;
+            overflowHead = NONE;
+            while (id != NONE) {
+                int following = next[id];
+                place(id, true);
+                id = following;
+            }
+        }
+        for (int level = top; level >= 1; level--) {
+            int index = (int) ((currentHour >>> LEVEL_SHIFT[level]) & (heads[level].length - 1));
+            int id = heads[level][index];
+            heads[level][index] = NONE;
+            while (id != NONE) {
+                int following = next[id];
+                place(id, true);
+                id = following;
+            }
+        }
+    }
+
+    /**
+     * Links an entry into the slot for its due hour relative to the current hour.
+     * @param id Entry id.
+     * @param currentSlotPending True if the current hour's slot has not been fired yet.
+     */
+    private void place(int id, boolean currentSlotPending) {
+        long delta = due[id] - currentHour;
+        if (delta <= 0) {
+            // The current hour's slot has already fired unless it is about to, so due entries
+            // otherwise go to the list the next tick empties
+            link(id, currentSlotPending ? (int) (currentHour & (heads[0].length - 1)) : DUE);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long span = 1L << (LEVEL_SHIFT[level] + LEVEL_BITS[level]);
+            if (delta < span) {
+                int index = (int) ((due[id] >>> LEVEL_SHIFT[level]) & (heads[level].length - 1));
+                link(id, (level << 16) | index);
+                return;
+            }
+        }
+        link(id, OVERFLOW);
+    }
+
+    private void link(int id, int target) {
+        int head = target == OVERFLOW ? overflowHead : target == DUE ? dueHead : heads[target >>> 16][target & 0xFFFF];
+        next[id] = head;
+        prev[id] = NONE;
+        if (head != NONE) {
+            prev[head] = id;
+        }
+        if (target == OVERFLOW) {
+            overflowHead = id;
+        } else if (target == DUE) {
+            dueHead = id;
+        } else {
+            heads[target >>> 16][target & 0xFFFF] = id;
+        }
+        slot[id] = target;
+    }
+
+    private void unlink(int id) {
+        int target = slot[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else if (target == OVERFLOW) {
+            overflowHead = next[id];
+        } else if (target == DUE) {
+            dueHead = next[id];
+        } else {
+            heads[target >>> 16][target & 0xFFFF] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int id = freeHead;
+            freeHead = next[id];
+            return id;
+        }
+        if (used == due.length) {
+            int capacity = used * 2;
+            due = Arrays.copyOf(due, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            slot = Arrays.copyOf(slot, capacity);
+            Arrays.fill(slot, used, capacity, FREE);
+            generation = Arrays.copyOf(generation, capacity);
+            payload = Arrays.copyOf(payload, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int id) {
+        payload[id] = null;
+        slot[id] = FREE;
+        generation[id]++;
+        next[id] = freeHead;
+        freeHead = id;
+    }
+}
@@ -1,7 +1,10 @@
 package smsnotifier;
 
+import contactvalidation.ContactValidator;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
 import notifier.Notifiable;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -20,17 +23,17 @@ public class SmsNotification implements Notifiable {
     @Override
     public void sendNotification(String to, String subject, String message) throws RpmsException {
         if (to == null || to.trim().isEmpty()) {
-            throw new RpmsException("INVALID_INPUT", "Phone number can't be empty");
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Phone number can't be empty");
         }
-        if (!to.matches("\\+?[1-9]\\d{1,14}")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid phone number format");
+        if (!ContactValidator.isValidPhone(to)) {
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid phone number format");
         }
         if (message == null || message.trim().isEmpty()) {
-            throw new RpmsException("INVALID_INPUT", "Message can't be empty");
+            throw RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Message can't be empty");
         }
 
         // TODO: Replace with real SMS service (e.g., Twilio)
         System.out.println("SMS to " + to + ": " + message);
-        LOGGER.info("SMS sent to " + to);
+        LOGGER.log(Level.INFO, "SMS sent to {0}", to);
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package templates;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Appends a double with a fixed number of decimals, giving the same text as
+ * {@code String.format(locale, "%.Nf", value)} without building a formatter or a string.
+ * <p>
+ * The value is scaled and rounded in long arithmetic. That can only disagree with the
+ * formatter's half-up rounding of the exact decimal when the scaled value sits right on a
+ * half, so those values, very large ones, and locales with non-ASCII digits go through
+ * {@code String.format} instead.
+ */
+final class DoubleFormat {
+    static final int MAX_DECIMALS = 9;
+    // Above this, a double's spacing is too coarse to tell a tie from its neighbours
+    private static final double FAST_LIMIT = 1e7;
+    private static final double TIE_MARGIN = 1e-6;
+    private static final long[] POWERS = new long[MAX_DECIMALS + 1];
+    private static final String[] FORMATS = new String[MAX_DECIMALS + 1];
+
+    static {
+        long power = 1;
+        for (int i = 0; i <= MAX_DECIMALS; i++) {
+            POWERS[i] = power;
+            FORMATS[i] = "%." + i + "f";
+            power *= 10;
+        }
+    }
+
+    private final Locale locale;
+    private final char separator;
+    private final boolean asciiDigits;
+
+    /**
+     * Creates a formatter using a locale's decimal separator.
+     * @param locale Locale.
+     */
+    DoubleFormat(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.locale = locale;
+        this.separator = symbols.getDecimalSeparator();
+        this.asciiDigits = symbols.getZeroDigit() == '0';
+    }
+
+    /**
+     * Appends a value rounded half-up to a number of decimals.
+     * @param out Builder to append to.
+     * @param value Value.
+     * @param decimals Decimals, 0 to {@value #MAX_DECIMALS}.
+     */
+    void appendFixed(StringBuilder out, double value, int decimals) {
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * POWERS[decimals];
+        if (asciiDigits && scaled < FAST_LIMIT) {
+            long whole = (long) scaled;
+            double fraction = scaled - whole;
+            if (Math.abs(fraction - 0.5) > TIE_MARGIN) {
+                // The sign bit, so -0.0 and small negatives print as "-0.00" like the formatter
+                if (Double.doubleToRawLongBits(value) < 0) {
+                    out.append('-');
+                }
+                appendScaled(out, fraction > 0.5 ? whole + 1 : whole, decimals);
+                return;
+            }
+        }
+        // NaN and infinities fail the limit check and land here too
+        out.append(String.format(locale, FORMATS[decimals], value));
+    }
+
+    private void appendScaled(StringBuilder out, long scaled, int decimals) {
+        long power = POWERS[decimals];
+        out.append(scaled / power);
+        if (decimals == 0) {
+            return;
+        }
+        out.append(separator);
+        long fraction = scaled % power;
+        for (long digit = power / 10; digit > 0; digit /= 10) {
+            out.append((char) ('0' + fraction / digit % 10));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package templates;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Message text with named placeholders, parsed once into a list of segments.
+ * <p>
+ * A placeholder is {@code {name}}, or {@code {name:.Nf}} for a number with N decimals written
+ * like {@code String.format("%.Nf")} in the template's locale. Two opening braces in a row
+ * stand for one literal brace.
+ * Values are given by parameter position through the calling thread's {@link Renderer}, which
+ * writes into a builder it keeps, so rendering allocates only the resulting string.
+ * <p>
+ * Templates are immutable and shared. A thread must finish one render of a template before
+ * starting another of the same template.
+ */
+public final class MessageTemplate {
+    private static final int MAX_KEPT_CAPACITY = 4096;
+
+    private final String source;
+    private final Locale locale;
+    private final String[] parameters;
+    // Segment i is literal text when slots[i] is -1, otherwise the value of parameter slots[i]
+    private final String[] literals;
+    private final int[] slots;
+    // Decimals of a numeric placeholder, or -1 to write the value as given
+    private final int[] decimals;
+    private final DoubleFormat numbers;
+    private final ThreadLocal<Renderer> renderers;
+
+    /**
+     * Values of one render, kept by each thread and reused.
+     */
+    public final class Renderer {
+        private final CharSequence[] texts = new CharSequence[parameters.length];
+        private final double[] values = new double[parameters.length];
+        private final boolean[] numeric = new boolean[parameters.length];
+        private StringBuilder out = new StringBuilder(64);
+
+        private Renderer() {
+        }
+
+        /**
+         * Sets a text parameter.
+         * @param parameter Parameter position.
+         * @param text Value; null is written as "null".
+         * @return This renderer.
+         */
+        public Renderer set(int parameter, CharSequence text) {
+            texts[parameter] = text;
+            numeric[parameter] = false;
+            return this;
+        }
+
+        /**
+         * Sets a numeric parameter without boxing it.
+         * @param parameter Parameter position.
+         * @param value Value.
+         * @return This renderer.
+         */
+        public Renderer set(int parameter, double value) {
+            values[parameter] = value;
+            numeric[parameter] = true;
+            return this;
+        }
+
+        /**
+         * Renders the message with the values set so far, then clears the values.
+         * @return Message text.
+         */
+        public String render() {
+            out.setLength(0);
+            renderTo(out);
+            String text = out.toString();
+            if (out.capacity() > MAX_KEPT_CAPACITY) {
+                // Don't keep a builder grown by one unusually long message
+                out = new StringBuilder(64);
+            }
+            return text;
+        }
+
+        /**
+         * Appends the message with the values set so far, then clears the values.
+         * @param target Builder to append to.
+         * @return The builder.
+         */
+        public StringBuilder renderTo(StringBuilder target) {
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                if (slot < 0) {
+                    target.append(literals[i]);
+                } else if (!numeric[slot]) {
+                    target.append(texts[slot]);
+                } else if (decimals[i] >= 0) {
+                    numbers.appendFixed(target, values[slot], decimals[i]);
+                } else {
+                    target.append(values[slot]);
+                }
+            }
+            clear();
+            return target;
+        }
+
+        private void clear() {
+            // Drop references to the caller's text so the thread doesn't keep it alive
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = null;
+            }
+        }
+    }
+
+    private MessageTemplate(String source, Locale locale, String[] parameters, List<String> literals,
+            List<Integer> slots, List<Integer> decimals) {
+        this.source = source;
+        this.locale = locale;
+        this.parameters = parameters;
+        this.literals = literals.toArray(new String[0]);
+        this.slots = new int[slots.size()];
+        this.decimals = new int[decimals.size()];
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = slots.get(i);
+            this.decimals[i] = decimals.get(i);
+        }
+        this.numbers = new DoubleFormat(locale);
+        this.renderers = ThreadLocal.withInitial(Renderer::new);
+    }
+
+    /**
+     * Parses a template.
+     * @param source Template text.
+     * @param locale Locale numbers are written in.
+     * @param parameters Parameter names in position order; a template may leave some out.
+     * @return Compiled template.
+     * @throws RpmsException If the text is malformed or names an unknown parameter.
+     */
+    public static MessageTemplate compile(String source, Locale locale, String... parameters) throws RpmsException {
+        if (source == null || locale == null || parameters == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Template, locale and parameters can't be null");
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<Integer> decimals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (source.startsWith("{{", i)) {
+                literal.append('{');
+                i += 2;
+                continue;
+            }
+            int end = source.indexOf('}', i);
+            if (end < 0) {
+                throw new RpmsException(ErrorCode.INVALID_INPUT, "Unclosed placeholder at " + i + " in: " + source);
+            }
+            String placeholder = source.substring(i + 1, end);
+            int colon = placeholder.indexOf(':');
+            String name = colon < 0 ? placeholder : placeholder.substring(0, colon);
+            int places = colon < 0 ? -1 : parseDecimals(placeholder.substring(colon + 1), source);
+            int slot = indexOf(parameters, name);
+            if (slot < 0) {
+                throw new RpmsException(ErrorCode.INVALID_INPUT, "Unknown placeholder {" + name + "} in: " + source);
+            }
+            if (literal.length() > 0) {
+                literals.add(literal.toString());
+                slots.add(-1);
+                decimals.add(-1);
+                literal.setLength(0);
+            }
+            literals.add(null);
+            slots.add(slot);
+            decimals.add(places);
+            i = end + 1;
+        }
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            slots.add(-1);
+            decimals.add(-1);
+        }
+        return new MessageTemplate(source, locale, parameters.clone(), literals, slots, decimals);
+    }
+
+    /*
+     * Getter
+     */
+    public String getSource() {
+        return source;
+    }
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns the calling thread's renderer for this template, with no values set.
+     * @return Renderer.
+     */
+    public Renderer renderer() {
+        return renderers.get();
+    }
+
+    private static int parseDecimals(String format, String source) throws RpmsException {
+        if (format.length() == 3 && format.charAt(0) == '.' && format.charAt(2) == 'f') {
+            int places = format.charAt(1) - '0';
+            if (places >= 0 && places <= DoubleFormat.MAX_DECIMALS) {
+                return places;
+            }
+        }
+        throw new RpmsException(ErrorCode.INVALID_INPUT, "Unsupported number format :" + format + " in: " + source);
+    }
+
+    private static int indexOf(String[] parameters, String name) {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,209 @@
+package templates;
+
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The compiled alert, reminder and consultation templates for one locale, with a method per
+ * message that fills in its values.
+ * <p>
+ * Texts come from {@code messages_<language>_<COUNTRY>.properties}, then
+ * {@code messages_<language>.properties}, then {@code messages.properties} in a directory,
+ * read as UTF-8, the first file to define a key winning; keys no file defines keep the built-in
+ * English text. The catalog in use is process-wide: senders read {@link #current()} on every
+ * message, so {@link #install} switches every sender at once.
+ */
+public final class TemplateCatalog {
+    public static final String CRITICAL_ALERT = "alert.critical";
+    public static final String TREND_ALERT = "alert.trend";
+    public static final String REMINDER = "reminder";
+    public static final String CONSULTATION_LINK = "consultation.link";
+    public static final String PANIC = "panic";
+    private static final Logger LOGGER = Logger.getLogger(TemplateCatalog.class.getName());
+    private static final String BASE_NAME = "messages";
+    private static final String[] CRITICAL_ALERT_PARAMETERS = {"vital", "value", "min", "max"};
+    private static final String[] TREND_ALERT_PARAMETERS = {"vital", "slope", "minutes", "rule"};
+    private static final String[] REMINDER_PARAMETERS = {"message", "due"};
+    private static final String[] CONSULTATION_LINK_PARAMETERS = {"platform", "link"};
+    private static volatile TemplateCatalog current = defaults(Locale.getDefault(Locale.Category.FORMAT));
+
+    private final Locale locale;
+    private final MessageTemplate criticalAlert;
+    private final MessageTemplate trendAlert;
+    private final MessageTemplate reminder;
+    private final MessageTemplate consultationLink;
+    private final String panic;
+
+    private TemplateCatalog(Locale locale, Properties texts) throws RpmsException {
+        this.locale = locale;
+        this.criticalAlert = MessageTemplate.compile(text(texts, CRITICAL_ALERT,
+            "ALERT: Critical {vital} detected! Value: {value:.2f} (Safe Range: {min:.2f}\u2013{max:.2f})"),
+            locale, CRITICAL_ALERT_PARAMETERS);
+        this.trendAlert = MessageTemplate.compile(text(texts, TREND_ALERT,
+            "ALERT: Sustained {vital} trend detected! Slope: {slope:.2f}/min over {minutes:.1f} min (Rule: {rule})"),
+            locale, TREND_ALERT_PARAMETERS);
+        this.reminder = MessageTemplate.compile(text(texts, REMINDER,
+            "REMINDER: {message} | Due Date: {due}"), locale, REMINDER_PARAMETERS);
+        this.consultationLink = MessageTemplate.compile(text(texts, CONSULTATION_LINK,
+            "Join your {platform} consultation: {link}"), locale, CONSULTATION_LINK_PARAMETERS);
+        this.panic = text(texts, PANIC, "PANIC BUTTON ACTIVATED! Immediate assistance required!");
+    }
+
+    /**
+     * Returns the built-in English texts, with numbers written for a locale.
+     * @param locale Locale numbers are written in.
+     * @return Catalog.
+     */
+    public static TemplateCatalog defaults(Locale locale) {
+        try {
+            return new TemplateCatalog(locale, new Properties());
+        } catch (RpmsException e) {
+            // The built-in texts are constants that compile
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Loads the texts for a locale from a directory of properties files.
+     * @param directory Directory holding the {@code messages*.properties} files.
+     * @param locale Locale to load.
+     * @return Catalog.
+     * @throws RpmsException If a file can't be read or a template is malformed.
+     */
+    public static TemplateCatalog load(Path directory, Locale locale) throws RpmsException {
+        if (directory == null || locale == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Template directory and locale can't be null");
+        }
+        Properties texts = new Properties();
+        List<String> names = new ArrayList<>();
+        if (!locale.getCountry().isEmpty()) {
+            names.add(BASE_NAME + "_" + locale.getLanguage() + "_" + locale.getCountry());
+        }
+        if (!locale.getLanguage().isEmpty()) {
+            names.add(BASE_NAME + "_" + locale.getLanguage());
+        }
+        names.add(BASE_NAME);
+        // Most general first, so more specific files override it
+        Collections.reverse(names);
+        for (String name : names) {
+            Path file = directory.resolve(name + ".properties");
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                texts.load(reader);
+            } catch (IOException e) {
+                throw new RpmsException(ErrorCode.INVALID_INPUT, "Failed to read templates from " + file, e);
+            }
+            LOGGER.log(Level.FINE, "Loaded templates from {0}", file);
+        }
+        return new TemplateCatalog(locale, texts);
+    }
+
+    /**
+     * Returns the catalog senders use.
+     * @return Current catalog.
+     */
+    public static TemplateCatalog current() {
+        return current;
+    }
+
+    /**
+     * Makes a catalog the one every sender uses.
+     * @param catalog Catalog to use.
+     * @throws RpmsException If the catalog is null.
+     */
+    public static void install(TemplateCatalog catalog) throws RpmsException {
+        if (catalog == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Template catalog can't be null");
+        }
+        current = catalog;
+    }
+
+    /*
+     * Getter
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Writes an alert for a vital outside its safe range.
+     * @param vital Vital sign name.
+     * @param value Current value.
+     * @param min Lowest safe value.
+     * @param max Highest safe value.
+     * @return Alert text.
+     */
+    public String criticalAlert(String vital, double value, double min, double max) {
+        return criticalAlert.renderer().set(0, vital).set(1, value).set(2, min).set(3, max).render();
+    }
+
+    /**
+     * Writes an alert for a sustained trend.
+     * @param vital Vital sign name.
+     * @param slopePerMinute Change per minute.
+     * @param minutes Time the trend spans.
+     * @param rule Rule that fired, written with its toString.
+     * @return Alert text.
+     */
+    public String trendAlert(String vital, double slopePerMinute, double minutes, Object rule) {
+        return trendAlert.renderer().set(0, vital).set(1, slopePerMinute).set(2, minutes)
+            .set(3, String.valueOf(rule)).render();
+    }
+
+    /**
+     * Writes a reminder.
+     * @param message Reminder message.
+     * @param due Due date, as text.
+     * @return Reminder text.
+     */
+    public String reminder(String message, CharSequence due) {
+        return reminder.renderer().set(0, message).set(1, due).render();
+    }
+
+    /**
+     * Appends a reminder, for callers that build many messages into one builder.
+     * @param out Builder to append to.
+     * @param message Reminder message.
+     * @param due Due date, as text.
+     * @return The builder.
+     */
+    public StringBuilder reminderTo(StringBuilder out, String message, CharSequence due) {
+        return reminder.renderer().set(0, message).set(1, due).renderTo(out);
+    }
+
+    /**
+     * Writes a consultation invitation.
+     * @param platform Video platform.
+     * @param link Meeting link.
+     * @return Invitation text.
+     */
+    public String consultationLink(String platform, String link) {
+        return consultationLink.renderer().set(0, platform).set(1, link).render();
+    }
+
+    /**
+     * Returns the panic alert text, which has no values.
+     * @return Panic text.
+     */
+    public String panic() {
+        return panic;
+    }
+
+    private static String text(Properties texts, String key, String fallback) {
+        return texts.getProperty(key, fallback);
+    }
+}
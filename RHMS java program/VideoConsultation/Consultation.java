@@ -0,0 +1,55 @@
+package videoconsultation;
+
+import contactvalidation.ValidatedContact;
+
+/**
+ * An active consultation tracked by a {@link ConsultationRegistry}.
+ */
+public final class Consultation {
+    private final String meetingId;
+    private final String platform;
+    private final String link;
+    private final ValidatedContact recipient;
+    private final long startedMillis;
+    private volatile long lastSeenMillis;
+
+    Consultation(String meetingId, String platform, String link, ValidatedContact recipient, long nowMillis) {
+        this.meetingId = meetingId;
+        this.platform = platform;
+        this.link = link;
+        this.recipient = recipient;
+        this.startedMillis = nowMillis;
+        this.lastSeenMillis = nowMillis;
+    }
+
+    /*
+     * Getter
+     */
+    public String getMeetingId() {
+        return meetingId;
+    }
+    public String getPlatform() {
+        return platform;
+    }
+    public String getLink() {
+        return link;
+    }
+    public ValidatedContact getRecipient() {
+        return recipient;
+    }
+    public long getStartedMillis() {
+        return startedMillis;
+    }
+    public long getLastSeenMillis() {
+        return lastSeenMillis;
+    }
+
+    void touch(long nowMillis) {
+        lastSeenMillis = nowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return platform + " consultation " + link;
+    }
+}
@@ -0,0 +1,176 @@
+package videoconsultation;
+
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import metrics.Counter;
+import metrics.Metrics;
+
+/**
+ * Tracks active consultations by meeting id across every {@link VideoCall}.
+ * Lookup, heartbeat and end are single hash-map operations. Consultations not seen for the
+ * idle timeout are treated as abandoned and removed by a background sweep.
+ */
+public final class ConsultationRegistry implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ConsultationRegistry.class.getName());
+    private static final long DEFAULT_IDLE_MILLIS = TimeUnit.HOURS.toMillis(4);
+    private static final long DEFAULT_SWEEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Counter EXPIRED = Metrics.counter("video.expired");
+    private static final Counter COLLISIONS = Metrics.counter("video.idCollisions");
+    private static ConsultationRegistry shared;
+
+    private final ConcurrentHashMap<String, Consultation> active = new ConcurrentHashMap<>();
+    private final long idleMillis;
+    private final LongSupplier clockMillis;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Sets up a registry that sweeps for abandoned consultations on a daemon thread.
+     * @param idleMillis Time without a heartbeat after which a consultation is abandoned.
+     * @param sweepMillis Time between sweeps.
+     * @throws RpmsException If either time is not positive.
+     */
+    public ConsultationRegistry(long idleMillis, long sweepMillis) throws RpmsException {
+        this(idleMillis, sweepMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Sets up a registry driven by a custom clock.
+     * @param idleMillis Time without a heartbeat after which a consultation is abandoned.
+     * @param sweepMillis Time between sweeps, or 0 to expire only through {@link #expireIdle()}.
+     * @param clockMillis Clock in milliseconds.
+     * @throws RpmsException If a setting is out of range.
+     */
+    public ConsultationRegistry(long idleMillis, long sweepMillis, LongSupplier clockMillis) throws RpmsException {
+        if (idleMillis <= 0 || sweepMillis < 0) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Idle timeout must be positive and sweep period not negative");
+        }
+        if (clockMillis == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Clock can't be null");
+        }
+        this.idleMillis = idleMillis;
+        this.clockMillis = clockMillis;
+        if (sweepMillis == 0) {
+            this.sweeper = null;
+            return;
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "consultation-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::expireIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the registry used by video calls that aren't given one: a four-hour idle
+     * timeout, swept every minute.
+     * @return Shared registry.
+     */
+    public static synchronized ConsultationRegistry shared() {
+        if (shared == null) {
+            try {
+                shared = new ConsultationRegistry(DEFAULT_IDLE_MILLIS, DEFAULT_SWEEP_MILLIS);
+            } catch (RpmsException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Registers a new consultation under a fresh meeting id.
+     * @param platform Video platform.
+     * @param recipient Recipient of the meeting link.
+     * @return The consultation.
+     */
+    Consultation open(String platform, ValidatedContact recipient) {
+        long now = clockMillis.getAsLong();
+        while (true) {
+            String meetingId = MeetingIdGenerator.next();
+            Consultation consultation = new Consultation(meetingId, platform,
+                VideoCall.linkFor(platform, meetingId), recipient, now);
+            if (active.putIfAbsent(meetingId, consultation) == null) {
+                return consultation;
+            }
+            COLLISIONS.increment();
+        }
+    }
+
+    /**
+     * Looks up an active consultation.
+     * @param meetingId Meeting id.
+     * @return The consultation, or null if it ended or expired.
+     */
+    public Consultation get(String meetingId) {
+        return meetingId == null ? null : active.get(meetingId);
+    }
+
+    /**
+     * Records that a consultation is still in use, postponing its expiry.
+     * @param meetingId Meeting id.
+     * @return True if the consultation is active.
+     */
+    public boolean touch(String meetingId) {
+        Consultation consultation = get(meetingId);
+        if (consultation == null) {
+            return false;
+        }
+        consultation.touch(clockMillis.getAsLong());
+        return true;
+    }
+
+    /**
+     * Ends a consultation.
+     * @param meetingId Meeting id.
+     * @return The ended consultation, or null if it had already ended or expired.
+     */
+    public Consultation end(String meetingId) {
+        return meetingId == null ? null : active.remove(meetingId);
+    }
+
+    /**
+     * Returns the number of active consultations.
+     * @return Active count.
+     */
+    public int size() {
+        return active.size();
+    }
+
+    /**
+     * Removes every consultation idle for longer than the timeout.
+     * @return Number of consultations removed.
+     */
+    public int expireIdle() {
+        long cutoff = clockMillis.getAsLong() - idleMillis;
+        int expired = 0;
+        for (Iterator<Consultation> it = active.values().iterator(); it.hasNext(); ) {
+            Consultation consultation = it.next();
+            if (consultation.getLastSeenMillis() < cutoff) {
+                it.remove();
+                expired++;
+                LOGGER.log(Level.INFO, "Expired abandoned {0}", consultation);
+            }
+        }
+        EXPIRED.add(expired);
+        return expired;
+    }
+
+    /**
+     * Stops the background sweep. Consultations stay registered.
+     */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
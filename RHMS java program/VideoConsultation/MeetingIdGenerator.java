@@ -0,0 +1,32 @@
+package videoconsultation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates short meeting ids: {@value #LENGTH} lowercase letters and digits, about 51 bits.
+ * Ids come from {@link ThreadLocalRandom}, so generation never blocks or contends the way
+ * {@code UUID.randomUUID()} does on its shared SecureRandom. They are not secrets; uniqueness
+ * among live meetings is enforced by {@link ConsultationRegistry}, which retries on a collision.
+ */
+final class MeetingIdGenerator {
+    static final int LENGTH = 10;
+    private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private MeetingIdGenerator() {
+    }
+
+    /**
+     * Returns a new random id.
+     * @return Meeting id.
+     */
+    static String next() {
+        // 36^10 is below 2^52, so the bits of one nextLong cover every digit
+        long bits = ThreadLocalRandom.current().nextLong() >>> 12;
+        char[] id = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            id[i] = ALPHABET[(int) (bits % ALPHABET.length)];
+            bits /= ALPHABET.length;
+        }
+        return new String(id);
+    }
+}
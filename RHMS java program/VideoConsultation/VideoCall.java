@@ -1,23 +1,37 @@
 package videoconsultation;
 
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
 import exceptionhandler.RpmsException;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import notifier.MessageType;
 import notifier.NotificationService;
-import java.util.UUID;
+import templates.TemplateCatalog;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Manages video consultations with notifications.
+ * Each consultation is registered in a {@link ConsultationRegistry} under its meeting id, and
+ * the link is sent without waiting for delivery.
  */
 public class VideoCall {
     private static final Logger LOGGER = Logger.getLogger(VideoCall.class.getName());
+    private static final Counter STARTS = Metrics.counter("video.starts");
+    private static final Counter START_FAILURES = Metrics.counter("video.startFailures");
+    private static final LatencyHistogram START_LATENCY = Metrics.histogram("video.start");
     private final String platform;
     private final NotificationService notifier;
-    private final String recipientEmail;
-    private final String recipientPhone;
-    private String currentMeetingLink;
+    private final ValidatedContact recipient;
+    private final ConsultationRegistry registry;
+    private Consultation current;
+    private CompletableFuture<Void> linkDelivery = CompletableFuture.completedFuture(null);
 
     /**
-     * Sets up a video call with notifications.
+     * Sets up a video call with notifications, tracked in the shared registry.
      * @param platform Video platform (Zoom or Google Meet).
      * @param notifier Notification service.
      * @param recipientEmail Email for meeting links.
@@ -26,73 +40,101 @@ public class VideoCall {
      */
     public VideoCall(String platform, NotificationService notifier, String recipientEmail, String recipientPhone)
             throws RpmsException {
+        this(platform, notifier, recipientEmail, recipientPhone, ConsultationRegistry.shared());
+    }
+
+    /**
+     * Sets up a video call with notifications, tracked in the given registry.
+     * @param platform Video platform (Zoom or Google Meet).
+     * @param notifier Notification service.
+     * @param recipientEmail Email for meeting links.
+     * @param recipientPhone Phone for meeting links.
+     * @param registry Registry of active consultations.
+     * @throws RpmsException If inputs are invalid.
+     */
+    public VideoCall(String platform, NotificationService notifier, String recipientEmail, String recipientPhone,
+            ConsultationRegistry registry) throws RpmsException {
         if (platform == null || platform.trim().isEmpty()) {
-            throw new RpmsException("INVALID_INPUT", "Platform can't be empty");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Platform can't be empty");
         }
         String trimmedPlatform = platform.trim();
         if (!trimmedPlatform.equalsIgnoreCase("GoogleMeet") && !trimmedPlatform.equalsIgnoreCase("Zoom")) {
-            throw new RpmsException("INVALID_PLATFORM", "Unsupported platform: " + trimmedPlatform);
+            throw new RpmsException(ErrorCode.INVALID_PLATFORM, "Unsupported platform: " + trimmedPlatform);
         }
         if (notifier == null) {
-            throw new RpmsException("INVALID_INPUT", "Notifier can't be null");
-        }
-        if (recipientEmail == null || recipientEmail.trim().isEmpty() || !recipientEmail.matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid recipient email");
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Notifier can't be null");
         }
-        if (recipientPhone == null || recipientPhone.trim().isEmpty() || !recipientPhone.matches("\\+?[1-9]\\d{1,14}")) {
-            throw new RpmsException("INVALID_INPUT", "Invalid recipient phone");
+        if (registry == null) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Registry can't be null");
         }
+        this.recipient = ValidatedContact.of(recipientEmail, recipientPhone,
+            "Invalid recipient email", "Invalid recipient phone");
         this.platform = trimmedPlatform;
         this.notifier = notifier;
-        this.recipientEmail = recipientEmail;
-        this.recipientPhone = recipientPhone;
+        this.registry = registry;
+    }
+
+    /*
+     * Getter
+     */
+    public Consultation getConsultation() {
+        return current;
+    }
+    public CompletableFuture<Void> getLinkDelivery() {
+        return linkDelivery;
     }
 
     /**
-     * Starts a new consultation and sends links.
+     * Starts a new consultation and sends links on every channel at once without waiting.
+     * Delivery failures are logged; {@link #getLinkDelivery()} completes when every channel is done.
      * @return Meeting link.
-     * @throws RpmsException If starting or notifying fails.
+     * @throws RpmsException If ending the previous consultation fails.
      */
     public String startConsultation() throws RpmsException {
-        if (currentMeetingLink != null) {
+        long start = System.nanoTime();
+        if (current != null) {
             endConsultation();
         }
-        String meetingId = UUID.randomUUID().toString().substring(0, 8);
-        currentMeetingLink = generatePlatformLink(meetingId);
-        LOGGER.info("Started " + platform + " consultation: " + currentMeetingLink);
-
-        String message = "Join your " + platform + " consultation: " + currentMeetingLink;
-        try {
-            notifier.sendEmailAlert(recipientEmail, "Video Consultation", message);
-            notifier.sendSMSAlert(recipientPhone, "Video Consultation", message);
-        } catch (RpmsException e) {
-            e.log(LOGGER);
-            throw new RpmsException("NOTIFICATION_FAILED", "Failed to send meeting link", e);
-        }
+        current = registry.open(platform, recipient);
+        String link = current.getLink();
+        LOGGER.log(Level.INFO, "Started {0}", current);
 
-        return currentMeetingLink;
+        String message = TemplateCatalog.current().consultationLink(platform, link);
+        CompletableFuture<?>[] sends = notifier.fanOut(MessageType.VIDEO_LINK, recipient, "Video Consultation", message)
+            .values().toArray(new CompletableFuture<?>[0]);
+        linkDelivery = CompletableFuture.allOf(sends).whenComplete((ok, e) -> {
+            if (e != null) {
+                START_FAILURES.increment();
+                LOGGER.log(Level.WARNING, "Failed to send meeting link {0}: {1}", new Object[] {link, e.getMessage()});
+            }
+        });
+        STARTS.increment();
+        START_LATENCY.record(System.nanoTime() - start);
+        return link;
     }
 
     /**
-     * Generates a platform-specific meeting link.
+     * Builds a platform-specific meeting link.
+     * @param platform Video platform.
      * @param meetingId Unique meeting ID.
      * @return Meeting link.
      */
-    private String generatePlatformLink(String meetingId) {
+    static String linkFor(String platform, String meetingId) {
         return platform.equalsIgnoreCase("GoogleMeet")
                 ? "http://meet.google.com/" + meetingId
                 : "http://zoom.us/j/" + meetingId;
     }
 
     /**
-     * Ends the active consultation.
+     * Ends the active consultation. A consultation that already expired counts as ended.
      * @throws RpmsException If no active consultation.
      */
     public void endConsultation() throws RpmsException {
-        if (currentMeetingLink == null) {
-            throw new RpmsException("NO_ACTIVE_CONSULTATION", "No active consultation");
+        if (current == null) {
+            throw new RpmsException(ErrorCode.NO_ACTIVE_CONSULTATION, "No active consultation");
         }
-        LOGGER.info("Ended " + platform + " consultation: " + currentMeetingLink);
-        currentMeetingLink = null;
+        registry.end(current.getMeetingId());
+        LOGGER.log(Level.INFO, "Ended {0}", current);
+        current = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, listing or helping as JMH does, and writing results as JSON to
+ * {@value #DEFAULT_RESULT_FILE} unless {@code -rf}/{@code -rff} say otherwise, so two builds can
+ * be compared by diffing their result files.
+ */
+public final class BenchmarkRunner {
+    static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Raises the root log level to WARNING so benchmarks measure the code, not console output.
+     */
+    static void quietLogging() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
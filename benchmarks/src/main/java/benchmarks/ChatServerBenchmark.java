@@ -0,0 +1,130 @@
+package benchmarks;
+
+import chatserver.ChatServer;
+import exceptionhandler.RpmsErrorHandling;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code ChatServer.routeMessage} throughput with 1, 4 and 8 threads, either all posting to one
+ * room or each to its own. Rooms are replaced before they fill up.
+ * <p>
+ * The thread counts are fixed rather than {@code Threads.MAX}, so the contended variants run
+ * with several threads even on a one-CPU host; they only measure scaling on a host with at
+ * least 8 cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChatServerBenchmark {
+    // Well under the room capacity, so a full room is never hit between checks
+    private static final int ROOM_LIMIT = 1 << 20;
+    private static final int CHECK_EVERY = 1 << 12;
+    private static final String MESSAGE = "How are you feeling today?";
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        final ChatServer server = new ChatServer();
+        final AtomicInteger generation = new AtomicInteger();
+        volatile String sharedRoom;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws RpmsErrorHandling {
+            BenchmarkRunner.quietLogging();
+            sharedRoom = openNext("shared-");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            server.removeRoom(sharedRoom);
+        }
+
+        String openNext(String prefix) throws RpmsErrorHandling {
+            String room = prefix + generation.incrementAndGet();
+            server.openRoom(room);
+            return room;
+        }
+
+        synchronized void rotateShared(String full) throws RpmsErrorHandling {
+            if (full.equals(sharedRoom) && server.getRoomTranscript(full).size() >= ROOM_LIMIT) {
+                sharedRoom = openNext("shared-");
+                server.removeRoom(full);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+        String name;
+        String ownRoom;
+        int sent;
+
+        @Setup(Level.Iteration)
+        public void setUp(Server server) throws RpmsErrorHandling {
+            name = Thread.currentThread().getName();
+            ownRoom = server.openNext("own-");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(Server server) {
+            server.server.removeRoom(ownRoom);
+        }
+    }
+
+    private static boolean routeShared(Server server, Sender sender) throws RpmsErrorHandling {
+        String room = server.sharedRoom;
+        if (++sender.sent % CHECK_EVERY == 0) {
+            server.rotateShared(room);
+        }
+        try {
+            server.server.routeMessage(room, sender.name, MESSAGE);
+            return true;
+        } catch (RpmsErrorHandling e) {
+            // The room was replaced after this thread read it
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean sharedRoom1(Server server, Sender sender) throws RpmsErrorHandling {
+        return routeShared(server, sender);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean sharedRoom4(Server server, Sender sender) throws RpmsErrorHandling {
+        return routeShared(server, sender);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean sharedRoom8(Server server, Sender sender) throws RpmsErrorHandling {
+        return routeShared(server, sender);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void ownRoom8(Server server, Sender sender) throws RpmsErrorHandling {
+        if (++sender.sent % ROOM_LIMIT == 0) {
+            server.server.removeRoom(sender.ownRoom);
+            sender.ownRoom = server.openNext("own-");
+        }
+        server.server.routeMessage(sender.ownRoom, sender.name, MESSAGE);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import exceptionhandler.RpmsErrorHandling;
+import emergencyalertsystem.CustomDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and formatting CustomDate values: a fresh date's first toString, the cached
+ * toString, and formatting into a reused builder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomDateBenchmark {
+    private CustomDate date;
+    private StringBuilder builder;
+    private int hour;
+
+    @Setup
+    public void setUp() throws RpmsErrorHandling {
+        date = new CustomDate(2025, 4, 28, 10);
+        builder = new StringBuilder(32);
+        hour = date.toEpochHour();
+    }
+
+    @Benchmark
+    public String createAndFormat() throws RpmsErrorHandling {
+        return new CustomDate(2025, 4, 28, 10).toString();
+    }
+
+    @Benchmark
+    public String cachedToString() {
+        return date.toString();
+    }
+
+    @Benchmark
+    public StringBuilder formatTo() {
+        builder.setLength(0);
+        return CustomDate.formatTo(builder, hour++);
+    }
+
+    @Benchmark
+    public CustomDate plusHours() throws RpmsErrorHandling {
+        return date.plusHours(36);
+    }
+}
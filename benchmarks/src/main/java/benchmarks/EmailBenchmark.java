@@ -0,0 +1,73 @@
+package benchmarks;
+
+import emailnotifier.EmailNotification;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Emails sent per second by four senders through EmailNotification against an
+ * {@link SmtpStandIn}, connecting per email (pool size 0) and over a pool of connections, with
+ * and without a delay per SMTP reply standing in for the network round trip.
+ * <p>
+ * Setup sends one email and checks it arrived, and teardown checks the pooled mode never opened
+ * more connections than the pool holds, so a broken transport fails the run instead of timing it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EmailBenchmark {
+    private static final String SUBJECT = "Emergency Alert";
+    private static final String MESSAGE = "ALERT: Critical HeartRate detected! Value: 130.00";
+
+    @Param({"0", "4"})
+    public int poolSize;
+
+    @Param({"0", "200"})
+    public long replyDelayMicros;
+
+    private SmtpStandIn standIn;
+    private EmailNotification email;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkRunner.quietLogging();
+        standIn = new SmtpStandIn(replyDelayMicros);
+        email = new EmailNotification("ward@hospital.org", "secret", "127.0.0.1",
+            String.valueOf(standIn.getPort()), poolSize);
+        email.sendNotification("doctor@hospital.org", SUBJECT, MESSAGE);
+        if (standIn.getMessageCount() != 1) {
+            throw new IllegalStateException("Stand-in received " + standIn.getMessageCount() + " emails, expected 1");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        email.close();
+        standIn.close();
+        if (poolSize > 0 && standIn.getConnectionCount() > poolSize) {
+            throw new IllegalStateException("Pool of " + poolSize + " opened " + standIn.getConnectionCount() + " connections");
+        }
+    }
+
+    @Benchmark
+    public void send() {
+        email.sendNotification("doctor@hospital.org", SUBJECT, MESSAGE);
+    }
+}
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import contactvalidation.ContactValidator;
+import contactvalidation.ValidatedContact;
+import exceptionhandler.ErrorCode;
+import exceptionhandler.RpmsException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of creating an RpmsException with and without a stack trace, and of validating a batch
+ * of contacts of which one in ten is invalid: by catching exceptions that fill in their stack
+ * trace (the baseline), by catching the stackless ones {@link ValidatedContact#of} throws, and by
+ * checking results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExceptionBenchmark {
+    private static final int CONTACTS = 100;
+
+    private String[] emails;
+    private String[] phones;
+
+    @Setup
+    public void setUp() {
+        emails = new String[CONTACTS];
+        phones = new String[CONTACTS];
+        for (int i = 0; i < CONTACTS; i++) {
+            emails[i] = "patient" + i + "@hospital.org";
+            // Every tenth contact has a phone number starting with 0
+            phones[i] = (i % 10 == 0 ? "0" : "+92") + (3001000000L + i);
+        }
+    }
+
+    @Benchmark
+    public RpmsException createWithStackTrace() {
+        return new RpmsException(ErrorCode.INVALID_INPUT, "Invalid phone number");
+    }
+
+    @Benchmark
+    public RpmsException createWithoutStackTrace() {
+        return RpmsException.withoutStackTrace(ErrorCode.INVALID_INPUT, "Invalid phone number");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONTACTS)
+    public void validateThrowingWithStackTrace(Blackhole blackhole) {
+        for (int i = 0; i < CONTACTS; i++) {
+            try {
+                blackhole.consume(ofWithStackTrace(emails[i], phones[i]));
+            } catch (RpmsException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONTACTS)
+    public void validateThrowing(Blackhole blackhole) {
+        for (int i = 0; i < CONTACTS; i++) {
+            try {
+                blackhole.consume(ValidatedContact.of(emails[i], phones[i]));
+            } catch (RpmsException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONTACTS)
+    public void validateResult(Blackhole blackhole) {
+        for (int i = 0; i < CONTACTS; i++) {
+            blackhole.consume(ValidatedContact.tryOf(emails[i], phones[i]));
+        }
+    }
+
+    /**
+     * Validates like {@link ValidatedContact#of(String, String)}, but throws exceptions that fill in
+     * their stack trace, as every validation failure did before they were made stackless.
+     */
+    private static ValidatedContact ofWithStackTrace(String email, String phone) throws RpmsException {
+        if (!ContactValidator.isValidEmail(email)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Invalid email address");
+        }
+        if (!ContactValidator.isValidPhone(phone)) {
+            throw new RpmsException(ErrorCode.INVALID_INPUT, "Invalid phone number");
+        }
+        return ValidatedContact.of(email, phone);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recording cost of the counters and histograms on the instrumented hot paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private final Counter counter = Metrics.counter("bench.counter");
+    private final LatencyHistogram histogram = Metrics.histogram("bench.histogram");
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void counterIncrementContended() {
+        counter.increment();
+    }
+
+    /**
+     * Reads the clock the way histogramRecord does, so its cost can be taken off that score.
+     */
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime() & 0xFFFFF;
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(System.nanoTime() & 0xFFFFF);
+    }
+}
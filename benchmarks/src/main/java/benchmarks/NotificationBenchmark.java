@@ -0,0 +1,74 @@
+package benchmarks;
+
+import contactvalidation.ValidatedContact;
+import exceptionhandler.RpmsException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import notifier.MessageType;
+import notifier.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NotificationService send paths against stub notifiers: synchronous routed sends, the
+ * string API that validates on every call, a queued send waited on to completion, and a
+ * per-channel fan-out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationBenchmark {
+    private static final String SUBJECT = "Emergency Alert";
+    private static final String MESSAGE = "ALERT: Critical HeartRate detected! Value: 130.00";
+
+    private NotificationService sync;
+    private NotificationService async;
+    private ValidatedContact contact;
+
+    @Setup
+    public void setUp() throws RpmsException {
+        BenchmarkRunner.quietLogging();
+        sync = new NotificationService(new StubNotifier(), new StubNotifier());
+        async = new NotificationService(new StubNotifier(), new StubNotifier(), 4096, 2, 64);
+        contact = ValidatedContact.of("ward@hospital.org", "+923001234567");
+    }
+
+    @TearDown
+    public void tearDown() {
+        async.shutdown(5000);
+    }
+
+    @Benchmark
+    public void sendRouted() throws RpmsException {
+        sync.send(MessageType.EMERGENCY_ALERT, contact, SUBJECT, MESSAGE);
+    }
+
+    @Benchmark
+    public void sendEmailValidated() throws RpmsException {
+        sync.sendEmailAlert("ward@hospital.org", SUBJECT, MESSAGE);
+    }
+
+    @Benchmark
+    public Void sendQueued() {
+        return async.sendAsync(MessageType.EMERGENCY_ALERT, contact, SUBJECT, MESSAGE).join();
+    }
+
+    @Benchmark
+    public Void fanOut() {
+        Map<String, CompletableFuture<Void>> sends = sync.fanOut(MessageType.PANIC, contact, SUBJECT, MESSAGE);
+        return CompletableFuture.allOf(sends.values().toArray(new CompletableFuture<?>[0])).join();
+    }
+}
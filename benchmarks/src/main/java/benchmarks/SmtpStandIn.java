@@ -0,0 +1,155 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process SMTP server on the loopback interface that accepts any login and every message,
+ * so EmailNotification can be driven end to end without a mail server.
+ * <p>
+ * It speaks just enough ESMTP for Jakarta Mail: EHLO advertising AUTH LOGIN and PLAIN, MAIL,
+ * RCPT, DATA, RSET, NOOP and QUIT. It offers no STARTTLS, so a connection costs less than against
+ * a real server; a reply delay stands in for the network round trip of each command.
+ */
+final class SmtpStandIn implements AutoCloseable {
+    private final ServerSocket server;
+    private final long replyDelayNanos;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smtp-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Starts listening on an ephemeral loopback port.
+     * @param replyDelayMicros Time to wait before each reply.
+     * @throws IOException If the port can't be bound.
+     */
+    SmtpStandIn(long replyDelayMicros) throws IOException {
+        this.server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        this.replyDelayNanos = TimeUnit.MICROSECONDS.toNanos(replyDelayMicros);
+        connections.execute(this::acceptLoop);
+    }
+
+    /*
+     * Getter
+     */
+    int getPort() {
+        return server.getLocalPort();
+    }
+    long getConnectionCount() {
+        return accepted.sum();
+    }
+    long getMessageCount() {
+        return messages.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (Socket socket : open) {
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                accepted.increment();
+                open.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Closed, or a connection that failed before it was accepted
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 stand-in ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                        reply(out, "250-stand-in\r\n250-AUTH LOGIN PLAIN\r\n250 8BITMIME");
+                        break;
+                    case "AUTH":
+                        authenticate(line, in, out);
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // The message body is read and dropped
+                        }
+                        messages.increment();
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    case "HELO":
+                    case "MAIL":
+                    case "RCPT":
+                    case "RSET":
+                    case "NOOP":
+                        reply(out, "250 OK");
+                        break;
+                    default:
+                        reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to clean up beyond the socket
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    /**
+     * Answers AUTH LOGIN or PLAIN, with or without an initial response, accepting any credentials.
+     */
+    private void authenticate(String line, BufferedReader in, OutputStream out) throws IOException {
+        String[] words = line.split(" ");
+        // LOGIN asks for the user and the password, PLAIN for both at once; an initial response saves one
+        int prompts = (words.length > 1 && words[1].equalsIgnoreCase("LOGIN") ? 2 : 1) - (words.length > 2 ? 1 : 0);
+        for (int i = 0; i < prompts; i++) {
+            reply(out, "334 ");
+            if (in.readLine() == null) {
+                return;
+            }
+        }
+        reply(out, "235 Authentication successful");
+    }
+
+    private void reply(OutputStream out, String reply) throws IOException {
+        if (replyDelayNanos > 0) {
+            LockSupport.parkNanos(replyDelayNanos);
+        }
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
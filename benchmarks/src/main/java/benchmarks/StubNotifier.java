@@ -0,0 +1,17 @@
+package benchmarks;
+
+import exceptionhandler.RpmsException;
+import notifier.Notifiable;
+
+/**
+ * Notifier that sends nothing, so benchmarks measure the notification code rather than a
+ * transport. It keeps the last message length so the call can't be optimized away.
+ */
+final class StubNotifier implements Notifiable {
+    volatile int lastLength;
+
+    @Override
+    public void sendNotification(String to, String subject, String message) throws RpmsException {
+        lastLength = message.length();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import templates.TemplateCatalog;
+
+/**
+ * Building the critical alert text with the compiled template against the String.format call
+ * it replaced, with a value that changes every call so nothing is cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+    private TemplateCatalog catalog;
+    private double value;
+
+    @Setup
+    public void setUp() {
+        catalog = TemplateCatalog.defaults(Locale.US);
+        value = 100;
+    }
+
+    @Benchmark
+    public String template() {
+        value += 0.001;
+        return catalog.criticalAlert("HeartRate", value, 60, 100);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        value += 0.001;
+        return String.format(Locale.US, "ALERT: Critical %s detected! Value: %.2f (Safe Range: %.2f\u2013%.2f)",
+            "HeartRate", value, 60.0, 100.0);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import contactvalidation.ContactValidator;
+import emergencyalertsystem.EmergencyAlert;
+import emergencyalertsystem.VitalRegistry;
+import emergencyalertsystem.VitalSignStream;
+import exceptionhandler.RpmsException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import notifier.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating one patient's four vitals: the map-based {@code checkVitals} against the
+ * streaming id-indexed path, plus the contact checks every alert depends on, against the
+ * regex they replaced. Readings are in range, so no alert is sent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VitalsBenchmark {
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+
+    private EmergencyAlert alert;
+    private VitalSignStream stream;
+    private int[] vitalIds;
+    private double[] values;
+    private String email;
+
+    @Setup
+    public void setUp() throws RpmsException {
+        BenchmarkRunner.quietLogging();
+        NotificationService notifier = new NotificationService(new StubNotifier(), new StubNotifier());
+        alert = new EmergencyAlert(notifier, "ward@hospital.org", "+923001234567");
+        stream = alert.openStream();
+        vitalIds = new int[] {
+            VitalRegistry.idOf("HeartRate"), VitalRegistry.idOf("BloodPressure"),
+            VitalRegistry.idOf("OxygenLevel"), VitalRegistry.idOf("Temperature")
+        };
+        values = new double[] {80, 120, 98, 37};
+        email = "ward@hospital.org";
+    }
+
+    @Benchmark
+    public void checkVitals() throws RpmsException {
+        alert.checkVitals(80, 120, 98, 37);
+    }
+
+    @Benchmark
+    public int streamBatch() throws RpmsException {
+        return stream.ingestBatch(vitalIds, values, 0, vitalIds.length);
+    }
+
+    @Benchmark
+    public boolean validateEmail() {
+        return ContactValidator.isValidEmail(email);
+    }
+
+    @Benchmark
+    public boolean validateEmailRegex() {
+        return EMAIL.matcher(email).matches();
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import emergencyalertsystem.VitalRegistry;
+import emergencyalertsystem.WardMonitor;
+import exceptionhandler.RpmsException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import notifier.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One evaluation pass over a whole ward, serial and split across 1..N fork-join workers.
+ * The worker count is a parameter of the pool state only, so the serial pass runs once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WardBenchmark {
+    @State(Scope.Benchmark)
+    public static class Ward {
+        @Param({"100000"})
+        public int patients;
+
+        WardMonitor ward;
+        double[][] readings;
+
+        @Setup
+        public void setUp() throws RpmsException {
+            BenchmarkRunner.quietLogging();
+            NotificationService notifier = new NotificationService(new StubNotifier(), new StubNotifier());
+            ward = new WardMonitor(notifier, null, patients);
+            for (int i = 0; i < patients; i++) {
+                ward.admit("patient-" + i, "ward@hospital.org", "+923001234567");
+            }
+            double[] normal = {80, 120, 98, 37};
+            String[] names = {"HeartRate", "BloodPressure", "OxygenLevel", "Temperature"};
+            readings = new double[VitalRegistry.size()][];
+            for (int v = 0; v < names.length; v++) {
+                readings[VitalRegistry.idOf(names[v])] = new double[ward.slotRange()];
+                Arrays.fill(readings[VitalRegistry.idOf(names[v])], normal[v]);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "2", "4", "8"})
+        public int parallelism;
+
+        ForkJoinPool pool;
+
+        @Setup
+        public void setUp() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int serial(Ward ward) throws RpmsException {
+        return ward.ward.evaluate(ward.readings);
+    }
+
+    @Benchmark
+    public int parallel(Ward ward, Pool pool) throws RpmsException {
+        return ward.ward.evaluateParallel(ward.readings, pool.pool);
+    }
+}